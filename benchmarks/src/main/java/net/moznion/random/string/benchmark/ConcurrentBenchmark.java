@@ -0,0 +1,44 @@
+package net.moznion.random.string.benchmark;
+
+import net.moznion.random.string.RandomStringGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generators shared between threads. Please compare results of single thread (e.g. {@code -t 1})
+ * and multiple threads (e.g. {@code -t 4}) to see scalability.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+  private static final String REGEX = "[a-f0-9]{32}";
+
+  private final RandomStringGenerator sharedRandomGenerator = new RandomStringGenerator();
+  private final RandomStringGenerator concurrentGenerator = RandomStringGenerator.concurrent();
+
+  @Benchmark
+  public String sharedRandom() {
+    return sharedRandomGenerator.generateByRegex(REGEX);
+  }
+
+  @Benchmark
+  public String concurrent() {
+    return concurrentGenerator.generateByRegex(REGEX);
+  }
+}
@@ -0,0 +1,44 @@
+package net.moznion.random.string.benchmark;
+
+import net.moznion.random.string.RandomStringGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived generators which are constructed per request with a seeded Random.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstructionBenchmark {
+  private long seed;
+
+  @Benchmark
+  public RandomStringGenerator construct() {
+    return new RandomStringGenerator(new Random(seed++));
+  }
+
+  @Benchmark
+  public String constructAndGeneratePattern() {
+    return new RandomStringGenerator(new Random(seed++)).generateFromPattern("nnnnnn");
+  }
+
+  @Benchmark
+  public String constructAndGenerateRegex() {
+    return new RandomStringGenerator(new Random(seed++)).generateByRegex("\\d{6}");
+  }
+}
@@ -0,0 +1,54 @@
+package net.moznion.random.string.benchmark;
+
+import net.moznion.random.string.CompiledPattern;
+import net.moznion.random.string.RandomStringGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PatternBenchmark {
+  @Param({"short", "long"})
+  private String length;
+
+  private RandomStringGenerator generator;
+  private String pattern;
+  private CompiledPattern compiled;
+
+  @Setup
+  public void setup() {
+    generator = new RandomStringGenerator();
+    if (length.equals("short")) {
+      pattern = "cCn!.sb";
+    } else {
+      pattern = "ssssssssssssssssssssssssssssssssssssssssssssssssssssssssssssssss";
+    }
+    compiled = generator.compilePattern(pattern);
+  }
+
+  @Benchmark
+  public String generateFromPattern() {
+    return generator.generateFromPattern(pattern);
+  }
+
+  @Benchmark
+  public String generateFromCompiledPattern() {
+    return compiled.generate();
+  }
+}
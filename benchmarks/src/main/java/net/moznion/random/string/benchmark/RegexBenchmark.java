@@ -0,0 +1,81 @@
+package net.moznion.random.string.benchmark;
+
+import net.moznion.random.string.CompiledRegex;
+import net.moznion.random.string.RandomStringGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RegexBenchmark {
+  /**
+   * <ul>
+   * <li>short : short regex with a few quantifiers</li>
+   * <li>long : long run of a single meta character</li>
+   * <li>quantifiers : many {m,n} quantifiers</li>
+   * <li>classes : many [...] character classes</li>
+   * </ul>
+   */
+  @Param({"short", "long", "quantifiers", "classes"})
+  private String kind;
+
+  private RandomStringGenerator generator;
+  private String regex;
+  private CompiledRegex compiled;
+
+  @Setup
+  public void setup() {
+    generator = new RandomStringGenerator();
+    switch (kind) {
+      case "short":
+        regex = "\\w+\\d*\\s[0-9]{0,3}X";
+        break;
+      case "long":
+        regex = "\\w{1000}";
+        break;
+      case "quantifiers":
+        regex = repeat("a{1,3}\\d{0,2}", 50);
+        break;
+      case "classes":
+        regex = repeat("[a-f][0-9][A-Z]", 30);
+        break;
+      default:
+        throw new IllegalArgumentException(kind);
+    }
+    compiled = generator.compile(regex);
+  }
+
+  @Benchmark
+  public String generateByRegex() {
+    return generator.generateByRegex(regex);
+  }
+
+  @Benchmark
+  public String generateFromCompiledRegex() {
+    return compiled.generate();
+  }
+
+  private static String repeat(final String s, final int times) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      sb.append(s);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,60 @@
+package net.moznion.random.string.benchmark;
+
+import net.moznion.random.string.CompiledPattern;
+import net.moznion.random.string.CompiledRegex;
+import net.moznion.random.string.RandomSource;
+import net.moznion.random.string.RandomStringGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-alphabet tokens which are long runs of a single letter picker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenBenchmark {
+  private CompiledRegex hex;
+  private CompiledRegex digits;
+  private CompiledPattern salt;
+
+  @Setup
+  public void setup() {
+    RandomStringGenerator generator =
+        new RandomStringGenerator(RandomSource.of(new SplittableRandom()));
+    hex = generator.compile("[a-f0-9]{64}");
+    digits = generator.compile("\\d{64}");
+    salt = generator.compilePattern(
+        "ssssssssssssssssssssssssssssssssssssssssssssssssssssssssssssssss");
+  }
+
+  @Benchmark
+  public String hex64() {
+    return hex.generate();
+  }
+
+  @Benchmark
+  public String digits64() {
+    return digits.generate();
+  }
+
+  @Benchmark
+  public String salt64() {
+    return salt.generate();
+  }
+}
@@ -0,0 +1,61 @@
+package net.moznion.random.string.benchmark;
+
+import net.moznion.random.string.CompiledRegex;
+import net.moznion.random.string.RandomStringGenerator;
+import net.moznion.random.string.TokenPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of issuing a token with SecureRandom, inline and from a pool.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenPoolBenchmark {
+  private static final String REGEX = "[0-9a-f]{32}";
+
+  private CompiledRegex compiled;
+  private TokenPool pool;
+
+  @Setup
+  public void setUp() {
+    RandomStringGenerator generator = new RandomStringGenerator(new SecureRandom());
+    compiled = generator.compile(REGEX);
+    pool = TokenPool.byRegex(generator, REGEX)
+        .setHighWatermark(8192)
+        .setLowWatermark(4096)
+        .build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.close();
+  }
+
+  @Benchmark
+  public String inline() {
+    return compiled.generate();
+  }
+
+  @Benchmark
+  public String pool() {
+    return pool.poll();
+  }
+}
@@ -0,0 +1,58 @@
+package net.moznion.random.string;
+
+/**
+ * Random source which extracts multiple small random numbers from each random word of the
+ * underlying source.
+ *
+ * <p>
+ * Bounded numbers are taken from the buffered word by the minimum number of bits and values out of
+ * the bound are rejected, so the distribution stays exactly uniform. This class isn't thread-safe;
+ * it is intended to be instantiated for each generation.
+ */
+class BatchedRandomSource implements RandomSource {
+  private static final int MAX_BITS_TO_BATCH = 16;
+
+  private final RandomSource source;
+  private long word;
+  private int numOfBits;
+
+  BatchedRandomSource(RandomSource source) {
+    this.source = source;
+  }
+
+  static int bitsForBound(final int bound) {
+    return 32 - Integer.numberOfLeadingZeros(bound - 1);
+  }
+
+  @Override
+  public int nextInt(int bound) {
+    final int bits = bitsForBound(bound);
+    if (bound <= 1 || bits > MAX_BITS_TO_BATCH) {
+      return source.nextInt(bound);
+    }
+
+    final int mask = (1 << bits) - 1;
+    while (true) {
+      if (numOfBits < bits) {
+        word = source.nextLong();
+        numOfBits = Long.SIZE;
+      }
+      int value = (int) word & mask;
+      word >>>= bits;
+      numOfBits -= bits;
+      if (value < bound) {
+        return value;
+      }
+    }
+  }
+
+  @Override
+  public long nextLong() {
+    return source.nextLong();
+  }
+
+  @Override
+  public void nextBytes(byte[] bytes) {
+    source.nextBytes(bytes);
+  }
+}
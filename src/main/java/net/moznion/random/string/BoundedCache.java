@@ -0,0 +1,186 @@
+package net.moznion.random.string;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache which is safe to share between threads.
+ *
+ * <p>
+ * Entries are distributed over segments by hash code of the key and each segment is an access
+ * ordered {@link LinkedHashMap} guarded by its own lock, so threads rarely contend. Least recently
+ * used entry in a segment is evicted when the segment exceeds its share of the capacity, so the
+ * order of eviction is approximately LRU over the whole cache. Shares add up to the capacity, so
+ * the cache never holds more entries than the capacity; small caches have a single segment. Values
+ * are computed and the listener is notified outside of the lock; when two threads compute the same
+ * key concurrently, the first stored value wins.
+ */
+class BoundedCache<K, V> {
+  private static final int MAX_NUM_OF_SEGMENTS = 16;
+
+  private final int capacity;
+  private final Segment<K, V>[] segments;
+  private final int segmentMask;
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder evictions;
+  private final Listener listener;
+
+  /**
+   * Listener of accesses to the cache, for instrumentation.
+   */
+  interface Listener {
+    void onHit();
+
+    void onMiss();
+
+    void onEviction();
+  }
+
+  public BoundedCache(int capacity) {
+    this(capacity, null);
+  }
+
+  /**
+   * @param listener Listener of accesses, or null
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public BoundedCache(int capacity, Listener listener) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+    }
+    this.capacity = capacity;
+    this.listener = listener;
+
+    int numOfSegments = 1;
+    while (numOfSegments < MAX_NUM_OF_SEGMENTS && numOfSegments * 2 <= capacity / 8) {
+      numOfSegments *= 2;
+    }
+    hits = new LongAdder();
+    misses = new LongAdder();
+    evictions = new LongAdder();
+
+    segments = new Segment[numOfSegments];
+    for (int i = 0; i < numOfSegments; i++) {
+      // the remainder is spread over the first segments
+      int segmentCapacity = capacity / numOfSegments + (i < capacity % numOfSegments ? 1 : 0);
+      segments[i] = new Segment<>(segmentCapacity);
+    }
+    segmentMask = numOfSegments - 1;
+  }
+
+  public V get(final K key, final Function<? super K, ? extends V> loader) {
+    if (capacity == 0) {
+      misses.increment();
+      if (listener != null) {
+        listener.onMiss();
+      }
+      return loader.apply(key);
+    }
+
+    Segment<K, V> segment = segmentFor(key);
+    V value;
+    synchronized (segment) {
+      value = segment.get(key);
+    }
+    if (value != null) {
+      hits.increment();
+      if (listener != null) {
+        listener.onHit();
+      }
+      return value;
+    }
+
+    misses.increment();
+    if (listener != null) {
+      listener.onMiss();
+    }
+    V loaded = loader.apply(key);
+    V existing;
+    int numOfEvicted;
+    synchronized (segment) {
+      existing = segment.putIfAbsent(key, loaded);
+      numOfEvicted = segment.takeNumOfEvicted();
+    }
+    recordEvictions(numOfEvicted);
+    return existing == null ? loaded : existing;
+  }
+
+  public void put(final K key, final V value) {
+    if (capacity == 0) {
+      return;
+    }
+    Segment<K, V> segment = segmentFor(key);
+    int numOfEvicted;
+    synchronized (segment) {
+      segment.put(key, value);
+      numOfEvicted = segment.takeNumOfEvicted();
+    }
+    recordEvictions(numOfEvicted);
+  }
+
+  private void recordEvictions(final int numOfEvicted) {
+    if (numOfEvicted == 0) {
+      return;
+    }
+    evictions.add(numOfEvicted);
+    if (listener != null) {
+      for (int i = 0; i < numOfEvicted; i++) {
+        listener.onEviction();
+      }
+    }
+  }
+
+  public void clear() {
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  public CacheStats stats() {
+    int size = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return new CacheStats(capacity, size, hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  private Segment<K, V> segmentFor(final K key) {
+    int h = key.hashCode();
+    return segments[(h ^ (h >>> 16)) & segmentMask];
+  }
+
+  private static class Segment<K, V> extends LinkedHashMap<K, V> {
+    private static final long serialVersionUID = 1L;
+
+    private final int segmentCapacity;
+    // evictions since the last take, which are recorded after the lock is released
+    private int numOfEvicted;
+
+    Segment(int segmentCapacity) {
+      super(16, 0.75f, true);
+      this.segmentCapacity = segmentCapacity;
+    }
+
+    int takeNumOfEvicted() {
+      final int n = numOfEvicted;
+      numOfEvicted = 0;
+      return n;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      if (size() > segmentCapacity) {
+        numOfEvicted++;
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package net.moznion.random.string;
+
+/**
+ * Snapshot of statistics of a cache in {@link RandomStringGenerator}.
+ *
+ * @author moznion
+ *
+ */
+public class CacheStats {
+  private final int capacity;
+  private final int size;
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+
+  CacheStats(int capacity, int size, long hitCount, long missCount, long evictionCount) {
+    this.capacity = capacity;
+    this.size = size;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+  }
+
+  /**
+   * Get maximum number of entries of the cache.
+   *
+   * @return Capacity
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Get number of entries in the cache.
+   *
+   * @return Number of entries
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Get number of lookups which have found a cached entry.
+   *
+   * @return Number of hits
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Get number of lookups which haven't found a cached entry.
+   *
+   * @return Number of misses
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Get number of entries which have been evicted to keep the capacity.
+   *
+   * @return Number of evictions
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats{capacity=" + capacity + ", size=" + size + ", hitCount=" + hitCount
+        + ", missCount=" + missCount + ", evictionCount=" + evictionCount + "}";
+  }
+}
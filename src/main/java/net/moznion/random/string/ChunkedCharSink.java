@@ -0,0 +1,148 @@
+package net.moznion.random.string;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Sink which collects generated characters into a fixed-size chunk and flushes it to the
+ * destination whenever it becomes full. So memory usage doesn't depend on length of output.
+ */
+abstract class ChunkedCharSink {
+  static final int CHUNK_SIZE = 8192;
+
+  private final char[] chunk;
+  private int position;
+  private long numOfChars;
+
+  ChunkedCharSink() {
+    chunk = new char[CHUNK_SIZE];
+    position = 0;
+    numOfChars = 0;
+  }
+
+  void append(final String s) throws IOException {
+    final int length = s.length();
+    for (int begin = 0; begin < length;) {
+      final int n = Math.min(length - begin, CHUNK_SIZE - position);
+      s.getChars(begin, begin + n, chunk, position);
+      begin += n;
+      position += n;
+      flushIfFull();
+    }
+  }
+
+  void append(final char c, final int count) throws IOException {
+    for (int rest = count; rest > 0;) {
+      final int n = Math.min(rest, CHUNK_SIZE - position);
+      Arrays.fill(chunk, position, position + n, c);
+      rest -= n;
+      position += n;
+      flushIfFull();
+    }
+  }
+
+  void append(final RandomLetterPicker picker, final int count, final RandomSource random)
+      throws IOException {
+    for (int rest = count; rest > 0;) {
+      final int n = Math.min(rest, CHUNK_SIZE - position);
+      picker.fill(chunk, position, n, random);
+      rest -= n;
+      position += n;
+      flushIfFull();
+    }
+  }
+
+  void append(final CodePointRangePicker picker, final int count, final RandomSource random)
+      throws IOException {
+    for (int i = 0; i < count; i++) {
+      if (position > CHUNK_SIZE - 2) { // keep room for a surrogate pair
+        flush();
+      }
+      position += Character.toChars(picker.pickCodePoint(random), chunk, position);
+    }
+  }
+
+  /**
+   * Write characters which remain in the chunk to the destination.
+   */
+  void flush() throws IOException {
+    if (position > 0) {
+      write(chunk, position);
+      numOfChars += position;
+      position = 0;
+    }
+  }
+
+  /**
+   * Get number of characters which have been written to the destination.
+   */
+  long getNumOfChars() {
+    return numOfChars;
+  }
+
+  private void flushIfFull() throws IOException {
+    if (position == CHUNK_SIZE) {
+      flush();
+    }
+  }
+
+  abstract void write(char[] chars, int length) throws IOException;
+
+  static class WriterSink extends ChunkedCharSink {
+    private final Writer writer;
+
+    WriterSink(Writer writer) {
+      this.writer = writer;
+    }
+
+    @Override
+    void write(char[] chars, int length) throws IOException {
+      writer.write(chars, 0, length);
+    }
+  }
+
+  /**
+   * Sink which encodes ASCII characters into bytes; each character becomes a single byte.
+   */
+  static class ByteBufferSink extends ChunkedCharSink {
+    private final ByteBuffer buffer;
+
+    ByteBufferSink(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    void write(char[] chars, int length) {
+      encode(chars, length, buffer);
+    }
+
+    static void encode(final char[] chars, final int length, final ByteBuffer buffer) {
+      for (int i = 0; i < length; i++) {
+        buffer.put((byte) chars[i]);
+      }
+    }
+  }
+
+  static class ChannelSink extends ChunkedCharSink {
+    private final ByteBuffer buffer;
+    private final WritableByteChannel channel;
+
+    ChannelSink(WritableByteChannel channel) {
+      this.buffer = ByteBuffer.allocate(CHUNK_SIZE);
+      this.channel = channel;
+    }
+
+    @Override
+    void write(char[] chars, int length) throws IOException {
+      buffer.clear();
+      ByteBufferSink.encode(chars, length, buffer);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package net.moznion.random.string;
+
+import java.util.Arrays;
+
+/**
+ * Picker of a code point from a character class (e.g. {@code [a-z]}), which is defined by ranges
+ * of code points.
+ *
+ * <p>
+ * Only sorted intervals and number of code points before each of them are stored, so memory usage
+ * doesn't depend on the size of ranges, and a code point is picked by binary search over the
+ * intervals. Surrogate code points are excluded, so that generated strings are always valid
+ * UTF-16; supplementary code points are generated as surrogate pairs. Small classes in the BMP are
+ * also resolved to a {@link RandomLetterPicker}, which is faster by a table lookup.
+ */
+class CodePointRangePicker {
+  /**
+   * Classes of at most this number of letters are resolved to a {@link RandomLetterPicker}, whose
+   * bulk fill works up to this size.
+   */
+  static final int MAX_TABLE_SIZE = 256;
+
+  private final int[] begins;
+  private final int[] offsets;
+  private final int size;
+  private final boolean bmp;
+  private final boolean ascii;
+  private final RandomLetterPicker letterPicker;
+
+  /**
+   * @param ranges Pairs of the first and the last code points of ranges
+   */
+  CodePointRangePicker(final int[] ranges) {
+    if (ranges.length == 0) {
+      throw new RuntimeException("Detected empty character class: []");
+    }
+
+    long numOfLetters = 0;
+    int[][] intervals = new int[ranges.length][];
+    int numOfIntervals = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      final int begin = ranges[i];
+      final int end = ranges[i + 1];
+      if (begin > end) {
+        throw new RuntimeException("Detected invalid character range: ["
+            + new String(Character.toChars(begin)) + "-" + new String(Character.toChars(end))
+            + "]");
+      }
+      // split around surrogates
+      if (begin < Character.MIN_SURROGATE) {
+        intervals[numOfIntervals++] =
+            new int[] {begin, Math.min(end, Character.MIN_SURROGATE - 1)};
+      }
+      if (end > Character.MAX_SURROGATE) {
+        intervals[numOfIntervals++] =
+            new int[] {Math.max(begin, Character.MAX_SURROGATE + 1), end};
+      }
+    }
+    for (int i = 0; i < numOfIntervals; i++) {
+      numOfLetters += intervals[i][1] - intervals[i][0] + 1;
+    }
+    if (numOfIntervals == 0) {
+      throw new RuntimeException("Detected character class of only surrogates");
+    }
+
+    // the table keeps letters in the order of the class, so that results for a seed are stable
+    letterPicker = numOfLetters <= MAX_TABLE_SIZE && maxOf(intervals, numOfIntervals) <= 0xffff
+        ? RandomLetterPicker.constructByCodePointIntervals(intervals, numOfIntervals)
+        : null;
+
+    Arrays.sort(intervals, 0, numOfIntervals, (a, b) -> Integer.compare(a[0], b[0]));
+    int numOfMerged = 0;
+    for (int i = 0; i < numOfIntervals; i++) {
+      if (numOfMerged > 0 && intervals[i][0] <= intervals[numOfMerged - 1][1] + 1) {
+        intervals[numOfMerged - 1][1] = Math.max(intervals[numOfMerged - 1][1], intervals[i][1]);
+      } else {
+        intervals[numOfMerged++] = intervals[i];
+      }
+    }
+
+    begins = new int[numOfMerged];
+    offsets = new int[numOfMerged];
+    int size = 0;
+    for (int i = 0; i < numOfMerged; i++) {
+      begins[i] = intervals[i][0];
+      offsets[i] = size;
+      size += intervals[i][1] - intervals[i][0] + 1;
+    }
+    this.size = size;
+    final int max = begins[numOfMerged - 1] + size - offsets[numOfMerged - 1] - 1;
+    bmp = max <= 0xffff;
+    ascii = max <= 0x7f;
+  }
+
+  private static int maxOf(final int[][] intervals, final int numOfIntervals) {
+    int max = 0;
+    for (int i = 0; i < numOfIntervals; i++) {
+      max = Math.max(max, intervals[i][1]);
+    }
+    return max;
+  }
+
+  /**
+   * Picker by a table of letters, or null if the class is large or has supplementary code points.
+   */
+  RandomLetterPicker getLetterPicker() {
+    return letterPicker;
+  }
+
+  int pickCodePoint(final RandomSource random) {
+    return codePointAt(random.nextInt(size));
+  }
+
+  private int codePointAt(final int index) {
+    int i = Arrays.binarySearch(offsets, index);
+    if (i < 0) {
+      i = -i - 2; // the interval which begins before the index
+    }
+    return begins[i] + index - offsets[i];
+  }
+
+  /**
+   * Append count code points to sb; a supplementary code point takes two chars.
+   */
+  void appendTo(final StringBuilder sb, final int count, final RandomSource random) {
+    if (bmp) {
+      sb.ensureCapacity(sb.length() + count);
+      for (int i = 0; i < count; i++) {
+        sb.append((char) pickCodePoint(random));
+      }
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      sb.appendCodePoint(pickCodePoint(random));
+    }
+  }
+
+  /**
+   * Fill count code points into dst from off as raw bytes; available only if {@link #isAscii()}.
+   */
+  void fill(final byte[] dst, final int off, final int count, final RandomSource random) {
+    for (int i = 0; i < count; i++) {
+      dst[off + i] = (byte) pickCodePoint(random);
+    }
+  }
+
+  /**
+   * Get distinct letters of this class in ascending order.
+   *
+   * @throws RuntimeException If the class has supplementary code points
+   */
+  char[] getDistinctLetters() {
+    if (!bmp) {
+      throw new RuntimeException("Cannot enumerate supplementary characters of character class");
+    }
+    char[] letters = new char[size];
+    for (int i = 0; i < size; i++) {
+      letters[i] = (char) codePointAt(i);
+    }
+    return letters;
+  }
+
+  /**
+   * Get number of distinct code points of this class.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Whether all code points of this class are ASCII characters.
+   */
+  boolean isAscii() {
+    return ascii;
+  }
+}
@@ -0,0 +1,259 @@
+package net.moznion.random.string;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Pattern which has been compiled by {@link RandomStringGenerator#compilePattern(String)}.
+ *
+ * <p>
+ * Each pattern character is resolved to its letter picker only once, so generation doesn't create
+ * any intermediate strings. Instance of this class is immutable and can be shared between threads
+ * as long as the generator which compiled it can.
+ *
+ * @author moznion
+ *
+ */
+public class CompiledPattern {
+  private final String pattern;
+  private final RandomLetterPicker[] pickers;
+  private final int[] runLengths;
+  private final RandomSource random;
+  private final GenerationListener listener;
+
+  CompiledPattern(String pattern, RandomLetterPicker[] pickers, RandomSource random) {
+    this(pattern, pickers, random, null);
+  }
+
+  CompiledPattern(String pattern, RandomLetterPicker[] pickers, RandomSource random,
+      GenerationListener listener) {
+    this.pattern = pattern;
+    this.pickers = pickers;
+    this.random = random;
+    this.listener = listener;
+
+    // number of the same pickers which continue from each position
+    runLengths = new int[pickers.length];
+    for (int i = pickers.length - 1; i >= 0; i--) {
+      runLengths[i] = i + 1 < pickers.length && pickers[i + 1] == pickers[i]
+          ? runLengths[i + 1] + 1
+          : 1;
+    }
+  }
+
+  /**
+   * Generate random string according to the compiled pattern.
+   *
+   * @return Random string which is generated according to pattern
+   */
+  public String generate() {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    char[] buffer = new char[pickers.length];
+    fill(buffer, batchedSourceOf(recorder));
+    finish(recorder, 1);
+    return new String(buffer);
+  }
+
+  /**
+   * Generate random strings lazily according to the compiled pattern.
+   *
+   * @param count Number of strings to generate
+   * @return Stream of random strings
+   */
+  public Stream<String> generateMany(final long count) {
+    return LongStream.range(0, count).mapToObj(i -> generate());
+  }
+
+  /**
+   * Generate random strings according to the compiled pattern and fill them into dst.
+   *
+   * @param dst Array to fill random strings
+   */
+  public void generateMany(final String[] dst) {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    char[] buffer = new char[pickers.length];
+    for (int i = 0; i < dst.length; i++) {
+      fill(buffer, batched);
+      dst[i] = new String(buffer);
+    }
+    finish(recorder, dst.length);
+  }
+
+  /**
+   * Generate random strings according to the compiled pattern and pass each of them to the
+   * consumer.
+   *
+   * <p>
+   * A single buffer is reused for all strings, so the consumer must not retain the passed
+   * {@link CharSequence}; please call {@code toString()} if you need to keep it.
+   *
+   * @param count Number of strings to generate
+   * @param consumer Consumer of random strings
+   */
+  public void forEach(final long count, final Consumer<CharSequence> consumer) {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    char[] buffer = new char[pickers.length];
+    CharBuffer view = CharBuffer.wrap(buffer);
+    for (long i = 0; i < count; i++) {
+      fill(buffer, batched);
+      consumer.accept(view);
+    }
+    finish(recorder, count);
+  }
+
+  /**
+   * Get this instance if its source of randomness can be shared between threads, or a copy which
+   * draws from the source under a lock.
+   */
+  CompiledPattern threadSafe() {
+    final RandomSource shared = RandomSources.threadSafe(random);
+    return shared == random ? this : new CompiledPattern(pattern, pickers, shared, listener);
+  }
+
+  /**
+   * Batched source of randomness for a call, which draws through the recorder if it isn't null.
+   */
+  private RandomSource batchedSourceOf(final GenerationRecorder recorder) {
+    return new BatchedRandomSource(GenerationRecorder.sourceOf(recorder, random));
+  }
+
+  private void finish(final GenerationRecorder recorder, final long numOfStrings) {
+    if (recorder != null) {
+      recorder.finish(pattern, numOfStrings, numOfStrings * pickers.length);
+    }
+  }
+
+  private void fill(final char[] buffer, final RandomSource batched) {
+    for (int i = 0; i < buffer.length;) {
+      final int runLength = runLengths[i];
+      if (runLength >= RandomLetterPicker.BULK_FILL_THRESHOLD) {
+        pickers[i].fill(buffer, i, runLength, batched);
+        i += runLength;
+      } else {
+        buffer[i] = pickers[i].pickChar(batched);
+        i++;
+      }
+    }
+  }
+
+  /**
+   * Generate random string according to the compiled pattern and append it to the target.
+   *
+   * @param target Buffer to append generated characters
+   */
+  public void generate(final StringBuilder target) {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    target.ensureCapacity(target.length() + pickers.length);
+    for (RandomLetterPicker picker : pickers) {
+      picker.appendTo(target, batched);
+    }
+    finish(recorder, 1);
+  }
+
+  /**
+   * Generate random string according to the compiled pattern and put it to the target.
+   *
+   * @param target Buffer to put generated characters
+   * @throws BufferOverflowException If there is insufficient space in the target
+   */
+  public void generate(final CharBuffer target) {
+    if (target.remaining() < pickers.length) {
+      throw new BufferOverflowException();
+    }
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    for (RandomLetterPicker picker : pickers) {
+      target.put(picker.pickChar(batched));
+    }
+    finish(recorder, 1);
+  }
+
+  /**
+   * Generate random string according to the compiled pattern as bytes.
+   *
+   * <p>
+   * Each character becomes a single byte; characters are ASCII except for {@code b}, which yields a
+   * raw byte between 0 and 254. Bytes are picked directly from the letter tables without encoding
+   * a string.
+   *
+   * @return Random bytes
+   */
+  public byte[] generateBytes() {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    byte[] bytes = new byte[pickers.length];
+    fill(bytes, 0, batchedSourceOf(recorder));
+    finish(recorder, 1);
+    return bytes;
+  }
+
+  /**
+   * Generate random string according to the compiled pattern and put it to the target as bytes. See
+   * also {@link #generateBytes()}.
+   *
+   * @param target Buffer to put generated bytes
+   * @throws BufferOverflowException If there is insufficient space in the target
+   */
+  public void generateBytes(final ByteBuffer target) {
+    if (target.remaining() < pickers.length) {
+      throw new BufferOverflowException();
+    }
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    if (target.hasArray()) {
+      fill(target.array(), target.arrayOffset() + target.position(), batched);
+      target.position(target.position() + pickers.length);
+    } else {
+      for (RandomLetterPicker picker : pickers) {
+        target.put(picker.pickByte(batched));
+      }
+    }
+    finish(recorder, 1);
+  }
+
+  private void fill(final byte[] dst, final int off, final RandomSource batched) {
+    for (int i = 0; i < pickers.length; i++) {
+      dst[off + i] = pickers[i].pickByte(batched);
+    }
+  }
+
+  /**
+   * Get length of strings which are generated by this pattern.
+   *
+   * @return Length of generated strings
+   */
+  public int getLength() {
+    return pickers.length;
+  }
+
+  /**
+   * Encoder of generated strings; exact if their number fits into a long, otherwise hashing.
+   */
+  StringKeyEncoder createKeyEncoder() {
+    StringKeyEncoder encoder = createMixedRadixEncoder();
+    return encoder == null ? StringKeyEncoder.hashing() : encoder;
+  }
+
+  /**
+   * Exact encoder of generated strings, or null if their number doesn't fit into a long.
+   */
+  StringKeyEncoder.MixedRadixEncoder createMixedRadixEncoder() {
+    return StringKeyEncoder.forPositions(Arrays.asList(pickers));
+  }
+
+  /**
+   * Get the source pattern of this compiled pattern.
+   *
+   * @return Source pattern
+   */
+  public String getPattern() {
+    return pattern;
+  }
+}
@@ -0,0 +1,693 @@
+package net.moznion.random.string;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Regular expression which has been compiled by {@link RandomStringGenerator#compile(String)}.
+ *
+ * <p>
+ * Instance of this class is immutable; the regex is parsed only once and quantifiers are
+ * randomized on each generation. So it can be reused to generate many strings with the same
+ * pattern. It can be shared between threads as long as the generator which compiled it can.
+ *
+ * @author moznion
+ *
+ */
+public class CompiledRegex {
+  private final String regex;
+  private final RegexNode[] nodes;
+  private final RandomSource random;
+  private final int numOfUpperLimit;
+  private final long minLength;
+  private final long maxLength;
+  private final LengthBounds lengthBounds;
+  private final boolean ascii;
+  private final GenerationListener listener;
+  private final RegexNode.Group root;
+  private final int initialCapacity;
+  private volatile RegexEnumerator enumerator;
+
+  private static final int PARALLEL_CHUNK_SIZE = 4096;
+  private static final int MAX_INITIAL_CAPACITY = 1024;
+
+  CompiledRegex(String regex, List<RegexNode> nodes, RandomSource random, int numOfUpperLimit) {
+    this(regex, nodes, random, numOfUpperLimit, null);
+  }
+
+  CompiledRegex(String regex, List<RegexNode> nodes, RandomSource random, int numOfUpperLimit,
+      GenerationListener listener) {
+    this.regex = regex;
+    this.nodes = nodes.toArray(new RegexNode[nodes.size()]);
+    this.random = random;
+    this.numOfUpperLimit = numOfUpperLimit;
+    this.listener = listener;
+
+    long minLength = 0;
+    long maxLength = 0;
+    long maxDrawnLength = 0;
+    double expectedLength = 0;
+    boolean ascii = true;
+    boolean grouped = false;
+    for (RegexNode node : this.nodes) {
+      ascii &= node.isAscii();
+      grouped |= node instanceof RegexNode.Group;
+      minLength += node.minLength();
+      maxLength += node.maxLength();
+      maxDrawnLength += node.maxDrawnLength();
+      expectedLength += node.expectedLength();
+    }
+    this.minLength = minLength;
+    this.maxLength = maxLength;
+    lengthBounds = new LengthBounds(minLength, maxDrawnLength, expectedLength);
+    this.ascii = ascii;
+
+    // lengths of groups can't be drawn before generation, so the whole regex is generated in a
+    // single pass as a group
+    root = grouped
+        ? new RegexNode.Group(regex, new RegexNode[][] {this.nodes}, 1, 1, false)
+        : null;
+    initialCapacity = (int) Math.min(maxDrawnLength, MAX_INITIAL_CAPACITY);
+  }
+
+  /**
+   * Generate random string according to the compiled regex.
+   *
+   * <p>
+   * Lengths of all quantifiers are drawn before generation, so the result is built in a buffer
+   * which is presized from the drawn lengths. Regexes with groups (e.g. {@code (foo|bar)+}) are
+   * generated in a single pass into one buffer instead.
+   *
+   * @return Random String
+   */
+  public String generate() {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    StringBuilder sb;
+    if (root != null) {
+      sb = new StringBuilder(initialCapacity);
+      root.generate(sb, batched);
+    } else {
+      final int[] lengths = new int[nodes.length];
+      sb = new StringBuilder(drawLengths(lengths, batched));
+      generate(sb, batched, lengths);
+    }
+    if (recorder != null) {
+      recorder.finish(regex, 1, sb.length());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Generate random string of exactly the length according to the compiled regex.
+   *
+   * <p>
+   * The length is distributed randomly among quantifiers of the regex. Quantifiers without upper
+   * bound (e.g. {@code *}, {@code +} and <code>{n,}</code>) are not limited by number of upper
+   * limit in this case, so e.g. {@code \w+} can generate a string of any positive length.
+   *
+   * <p>
+   * The length is counted in code points as well as quantifiers count them; a supplementary
+   * character of a character class (e.g. an emoji) is one code point but two chars, so
+   * {@link String#length()} of the result can be longer than the length.
+   *
+   * @param length Length of the string in code points
+   * @return Random String
+   * @throws RuntimeException If the regex can't generate a string of the length
+   */
+  public String generate(final int length) {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    StringBuilder sb = new StringBuilder(length);
+    generate(sb, batched, length);
+    if (recorder != null) {
+      recorder.finish(regex, 1, sb.length());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Generate random string whose length follows the distribution according to the compiled regex.
+   *
+   * <p>
+   * Sampled lengths are counted in code points; see also {@link #generate(int)}.
+   *
+   * @param lengthDistribution Distribution of length in code points
+   * @return Random String
+   * @throws RuntimeException If the regex can't generate a string of the sampled length
+   */
+  public String generate(final LengthDistribution lengthDistribution) {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    final int length = lengthDistribution.sample(batched);
+    StringBuilder sb = new StringBuilder(length);
+    generate(sb, batched, length);
+    if (recorder != null) {
+      recorder.finish(regex, 1, sb.length());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Generate random string according to the compiled regex and write it to the writer.
+   *
+   * <p>
+   * Characters are written in fixed-size chunks as they are generated, so memory usage doesn't
+   * depend on length of the string. The writer is neither flushed nor closed.
+   *
+   * @param writer Destination of random string
+   * @throws IOException If the writer throws it
+   */
+  public void generateTo(final Writer writer) throws IOException {
+    generate(new ChunkedCharSink.WriterSink(writer));
+  }
+
+  /**
+   * Generate random string according to the compiled regex and write it to the channel as ASCII
+   * bytes.
+   *
+   * <p>
+   * Characters are written in fixed-size chunks as they are generated, so memory usage doesn't
+   * depend on length of the string. The channel is not closed.
+   *
+   * @param channel Destination of random string
+   * @throws IOException If the channel throws it
+   * @throws RuntimeException If the regex can generate non-ASCII characters
+   */
+  public void generateTo(final WritableByteChannel channel) throws IOException {
+    requireAscii();
+    generate(new ChunkedCharSink.ChannelSink(channel));
+  }
+
+  /**
+   * Generate random string according to the compiled regex and put it to the buffer as ASCII
+   * bytes.
+   *
+   * @param buffer Destination of random string
+   * @throws BufferOverflowException If there is insufficient space in the buffer; nothing is put in
+   *         this case
+   * @throws RuntimeException If the regex can generate non-ASCII characters
+   */
+  public void generateInto(final ByteBuffer buffer) {
+    requireAscii();
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    if (root != null) {
+      StringBuilder sb = new StringBuilder(initialCapacity);
+      root.generate(sb, batched);
+      if (buffer.remaining() < sb.length()) {
+        throw new BufferOverflowException();
+      }
+      for (int i = 0; i < sb.length(); i++) {
+        buffer.put((byte) sb.charAt(i));
+      }
+      if (recorder != null) {
+        recorder.finish(regex, 1, sb.length());
+      }
+      return;
+    }
+
+    final int[] lengths = new int[nodes.length];
+    final int length = drawLengths(lengths, batched);
+    if (buffer.remaining() < length) {
+      throw new BufferOverflowException();
+    }
+
+    if (buffer.hasArray()) {
+      generate(buffer.array(), buffer.arrayOffset() + buffer.position(), batched, lengths);
+      buffer.position(buffer.position() + length);
+    } else {
+      try {
+        generate(new ChunkedCharSink.ByteBufferSink(buffer), batched, lengths);
+      } catch (IOException e) {
+        // ByteBufferSink never throws it
+        throw new UncheckedIOException(e);
+      }
+    }
+    if (recorder != null) {
+      recorder.finish(regex, 1, length);
+    }
+  }
+
+  /**
+   * Generate random string according to the compiled regex as ASCII bytes.
+   *
+   * <p>
+   * Bytes are written directly from the letter tables, so this is faster than encoding the result
+   * of {@link #generate()}.
+   *
+   * @return Random bytes
+   * @throws RuntimeException If the regex can generate non-ASCII characters
+   */
+  public byte[] generateBytes() {
+    requireAscii();
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    byte[] bytes;
+    if (root != null) {
+      StringBuilder sb = new StringBuilder(initialCapacity);
+      root.generate(sb, batched);
+      bytes = new byte[sb.length()];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) sb.charAt(i);
+      }
+    } else {
+      final int[] lengths = new int[nodes.length];
+      bytes = new byte[drawLengths(lengths, batched)];
+      generate(bytes, 0, batched, lengths);
+    }
+    if (recorder != null) {
+      recorder.finish(regex, 1, bytes.length);
+    }
+    return bytes;
+  }
+
+  private void generate(final byte[] dst, final int off, final RandomSource batched,
+      final int[] lengths) {
+    int cursor = off;
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i].generate(dst, cursor, batched, lengths[i]);
+      cursor += lengths[i];
+    }
+  }
+
+  private void requireAscii() {
+    if (!ascii) {
+      throw new RuntimeException("Cannot encode non-ASCII characters of regex: " + regex);
+    }
+  }
+
+  private void generate(final ChunkedCharSink sink) throws IOException {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    if (root != null) {
+      root.generate(sink, batched);
+      sink.flush();
+    } else {
+      final int[] lengths = new int[nodes.length];
+      drawLengths(lengths, batched);
+      generate(sink, batched, lengths);
+    }
+    if (recorder != null) {
+      recorder.finish(regex, 1, sink.getNumOfChars());
+    }
+  }
+
+  private void generate(final ChunkedCharSink sink, final RandomSource batched,
+      final int[] lengths) throws IOException {
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i].generate(sink, batched, lengths[i]);
+    }
+    sink.flush();
+  }
+
+  /**
+   * Generate random strings lazily according to the compiled regex.
+   *
+   * @param count Number of strings to generate
+   * @return Stream of random strings
+   */
+  public Stream<String> generateMany(final long count) {
+    return LongStream.range(0, count).mapToObj(i -> generate());
+  }
+
+  /**
+   * Generate random strings according to the compiled regex and fill them into dst.
+   *
+   * @param dst Array to fill random strings
+   */
+  public void generateMany(final String[] dst) {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    final int[] lengths = new int[nodes.length];
+    StringBuilder sb = new StringBuilder(initialCapacity);
+    long numOfChars = 0;
+    for (int i = 0; i < dst.length; i++) {
+      sb.setLength(0);
+      append(sb, batched, lengths);
+      dst[i] = sb.toString();
+      numOfChars += sb.length();
+    }
+    if (recorder != null) {
+      recorder.finish(regex, dst.length, numOfChars);
+    }
+  }
+
+  /**
+   * Generate random strings according to the compiled regex and pass each of them to the consumer.
+   *
+   * <p>
+   * A single buffer is reused for all strings, so the consumer must not retain the passed
+   * {@link CharSequence}; please call {@code toString()} if you need to keep it.
+   *
+   * @param count Number of strings to generate
+   * @param consumer Consumer of random strings
+   */
+  public void forEach(final long count, final Consumer<CharSequence> consumer) {
+    final GenerationRecorder recorder = GenerationRecorder.start(listener, random);
+    final RandomSource batched = batchedSourceOf(recorder);
+    final int[] lengths = new int[nodes.length];
+    StringBuilder sb = new StringBuilder(initialCapacity);
+    long numOfChars = 0;
+    for (long i = 0; i < count; i++) {
+      sb.setLength(0);
+      append(sb, batched, lengths);
+      numOfChars += sb.length();
+      consumer.accept(sb);
+    }
+    if (recorder != null) {
+      recorder.finish(regex, count, numOfChars);
+    }
+  }
+
+  /**
+   * Generate random strings in parallel on the common fork/join pool.
+   *
+   * <p>
+   * Requested strings are split into fixed-size chunks and each chunk draws from its own random
+   * stream which is derived from the seed deterministically. So the result is identical for the
+   * same seed regardless of the number of threads. The random source of the generator is not used.
+   *
+   * @param count Number of strings to generate
+   * @param seed Root seed of random streams
+   * @return Random strings
+   */
+  public String[] generateParallel(final int count, final long seed) {
+    return generateParallel(count, seed, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Generate random strings in parallel on the pool.
+   *
+   * <p>
+   * Result is identical to {@link #generateParallel(int, long)} for the same seed.
+   *
+   * @param count Number of strings to generate
+   * @param seed Root seed of random streams
+   * @param pool Pool to execute generation
+   * @return Random strings
+   */
+  public String[] generateParallel(final int count, final long seed, final ForkJoinPool pool) {
+    final String[] dst = new String[count];
+    final int numOfChunks = (count + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+
+    // derive all streams in order up front, so that they don't depend on scheduling
+    final SplittableRandom root = new SplittableRandom(seed);
+    final SplittableRandom[] chunkRandoms = new SplittableRandom[numOfChunks];
+    for (int i = 0; i < numOfChunks; i++) {
+      chunkRandoms[i] = root.split();
+    }
+
+    pool.invoke(new ChunkGenerationTask(dst, chunkRandoms, 0, numOfChunks));
+    return dst;
+  }
+
+  private class ChunkGenerationTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] dst;
+    private final SplittableRandom[] chunkRandoms;
+    private final int beginChunk;
+    private final int endChunk;
+
+    ChunkGenerationTask(String[] dst, SplittableRandom[] chunkRandoms, int beginChunk,
+        int endChunk) {
+      this.dst = dst;
+      this.chunkRandoms = chunkRandoms;
+      this.beginChunk = beginChunk;
+      this.endChunk = endChunk;
+    }
+
+    @Override
+    protected void compute() {
+      if (endChunk - beginChunk > 1) {
+        int middleChunk = (beginChunk + endChunk) >>> 1;
+        invokeAll(new ChunkGenerationTask(dst, chunkRandoms, beginChunk, middleChunk),
+            new ChunkGenerationTask(dst, chunkRandoms, middleChunk, endChunk));
+        return;
+      }
+
+      for (int chunk = beginChunk; chunk < endChunk; chunk++) {
+        final RandomSource chunkRandom = RandomSource.of(chunkRandoms[chunk]);
+        final GenerationRecorder recorder = GenerationRecorder.start(listener, chunkRandom);
+        final RandomSource batched =
+            new BatchedRandomSource(GenerationRecorder.sourceOf(recorder, chunkRandom));
+        final int begin = chunk * PARALLEL_CHUNK_SIZE;
+        final int end = Math.min(dst.length, (chunk + 1) * PARALLEL_CHUNK_SIZE);
+        final int[] lengths = new int[nodes.length];
+        StringBuilder sb = new StringBuilder(initialCapacity);
+        long numOfChars = 0;
+        for (int i = begin; i < end; i++) {
+          sb.setLength(0);
+          append(sb, batched, lengths);
+          dst[i] = sb.toString();
+          numOfChars += sb.length();
+        }
+        if (recorder != null) {
+          recorder.finish(regex, end - begin, numOfChars);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get this instance if its source of randomness can be shared between threads, or a copy which
+   * draws from the source under a lock.
+   */
+  CompiledRegex threadSafe() {
+    final RandomSource shared = RandomSources.threadSafe(random);
+    return shared == random
+        ? this
+        : new CompiledRegex(regex, Arrays.asList(nodes), shared, numOfUpperLimit, listener);
+  }
+
+  /**
+   * Batched source of randomness for a call, which draws through the recorder if it isn't null.
+   */
+  private RandomSource batchedSourceOf(final GenerationRecorder recorder) {
+    return new BatchedRandomSource(GenerationRecorder.sourceOf(recorder, random));
+  }
+
+  /**
+   * Append a random string to sb. Lengths of nodes are drawn into lengths first, unless the regex
+   * has groups.
+   */
+  private void append(final StringBuilder sb, final RandomSource batched, final int[] lengths) {
+    if (root != null) {
+      root.generate(sb, batched);
+      return;
+    }
+    sb.ensureCapacity(drawLengths(lengths, batched));
+    generate(sb, batched, lengths);
+  }
+
+  private void generate(final StringBuilder sb, final RandomSource batched, final int length) {
+    if (root != null) {
+      if (length < 0) {
+        throw new RuntimeException(
+            "Cannot generate a string of length " + length + " from regex: " + regex);
+      }
+      root.generate(sb, batched, length);
+      return;
+    }
+    generate(sb, batched, distributeLength(length, batched));
+  }
+
+  private void generate(final StringBuilder sb, final RandomSource batched, final int[] lengths) {
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i].generate(sb, batched, lengths[i]);
+    }
+  }
+
+  /**
+   * Draw lengths of all nodes into lengths and return the total.
+   */
+  private int drawLengths(final int[] lengths, final RandomSource batched) {
+    int total = 0;
+    for (int i = 0; i < nodes.length; i++) {
+      lengths[i] = nodes[i].drawLength(batched);
+      total += lengths[i];
+    }
+    return total;
+  }
+
+  /**
+   * Distribute the length among nodes. Nodes are visited in random order and each of them takes a
+   * uniformly random share of the remaining length, within what the rest of nodes can take.
+   */
+  private int[] distributeLength(final int length, final RandomSource random) {
+    if (length < minLength || length > maxLength) {
+      throw new RuntimeException(
+          "Cannot generate a string of length " + length + " from regex: " + regex);
+    }
+
+    final int[] lengths = new int[nodes.length];
+    final int[] elasticNodes = new int[nodes.length];
+    int numOfElasticNodes = 0;
+    long restCapacity = 0;
+    for (int i = 0; i < nodes.length; i++) {
+      lengths[i] = nodes[i].minLength();
+      if (nodes[i].maxLength() > nodes[i].minLength()) {
+        elasticNodes[numOfElasticNodes++] = i;
+        restCapacity += capacityOf(nodes[i]);
+      }
+    }
+
+    for (int i = numOfElasticNodes - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int tmp = elasticNodes[i];
+      elasticNodes[i] = elasticNodes[j];
+      elasticNodes[j] = tmp;
+    }
+
+    long remaining = length - minLength;
+    for (int k = 0; k < numOfElasticNodes && remaining > 0; k++) {
+      final int i = elasticNodes[k];
+      final long capacity = capacityOf(nodes[i]);
+      restCapacity -= capacity;
+
+      long low = Math.max(0, remaining - restCapacity);
+      long high = Math.min(capacity, remaining);
+      int share = (int) (low + random.nextInt((int) (high - low + 1)));
+      lengths[i] += share;
+      remaining -= share;
+    }
+    return lengths;
+  }
+
+  private static long capacityOf(final RegexNode node) {
+    // regard unbounded capacity as enough for any length
+    return node.maxLength() == RegexNode.UNBOUNDED
+        ? Integer.MAX_VALUE
+        : node.maxLength() - node.minLength();
+  }
+
+  /**
+   * Count all strings which can be generated by the compiled regex.
+   *
+   * <p>
+   * The regex must be finite, i.e. it must not contain quantifiers without upper bound (e.g.
+   * {@code *}, {@code +} and <code>{n,}</code>), including quantifiers of groups. A string which
+   * can be generated in several ways (e.g. "a" from {@code a?a?} or {@code (a|a)}) is counted for
+   * each of them.
+   *
+   * @return Number of strings
+   * @throws RuntimeException If the regex is infinite
+   */
+  public BigInteger count() {
+    return getEnumerator().count();
+  }
+
+  /**
+   * Get the string at the index among all strings which can be generated by the compiled regex.
+   *
+   * <p>
+   * Strings are ordered as numbers whose digits are parts of the regex, and each part is ordered
+   * by length and then by letters in ascending order; e.g. strings of {@code [ab]\d?} are "a",
+   * "a0", ..., "a9", "b", "b0", ... So workers can take slices of all strings by ranges of index.
+   * A group is ordered by number of repetitions and then by its repetitions in turn, each of which
+   * is ordered by alternative; e.g. strings of {@code (a|bc){1,2}} are "a", "bc", "aa", "abc",
+   * "bca", "bcbc".
+   * See also {@link #count()}.
+   *
+   * @param index Index between 0 (inclusive) and {@link #count()} (exclusive)
+   * @return String at the index
+   * @throws RuntimeException If the regex is infinite
+   * @throws IndexOutOfBoundsException If the index is out of range
+   */
+  public String nth(final BigInteger index) {
+    return getEnumerator().nth(index);
+  }
+
+  /**
+   * Get the string at the index among all strings which can be generated by the compiled regex.
+   * See also {@link #nth(BigInteger)}.
+   *
+   * @param index Index between 0 (inclusive) and {@link #count()} (exclusive)
+   * @return String at the index
+   * @throws RuntimeException If the regex is infinite
+   * @throws IndexOutOfBoundsException If the index is out of range
+   */
+  public String nth(final long index) {
+    return nth(BigInteger.valueOf(index));
+  }
+
+  /**
+   * Enumerate all strings which can be generated by the compiled regex lazily, in the same order as
+   * {@link #nth(BigInteger)}.
+   *
+   * @return Stream of all strings
+   * @throws RuntimeException If the regex is infinite
+   */
+  public Stream<String> enumerate() {
+    return getEnumerator().enumerate();
+  }
+
+  private RegexEnumerator getEnumerator() {
+    RegexEnumerator enumerator = this.enumerator;
+    if (enumerator == null) {
+      enumerator = new RegexEnumerator(regex, nodes);
+      this.enumerator = enumerator;
+    }
+    return enumerator;
+  }
+
+  /**
+   * Get the source regex of this compiled regex.
+   *
+   * @return Source regex
+   */
+  public String getRegex() {
+    return regex;
+  }
+
+  /**
+   * Get bounds of length of strings which are generated by {@link #generate()}, in code points.
+   *
+   * @return Bounds of length
+   */
+  public LengthBounds getLengthBounds() {
+    return lengthBounds;
+  }
+
+  /**
+   * Encoder of generated strings; exact if they have fixed length and their number fits into a
+   * long, otherwise hashing.
+   */
+  StringKeyEncoder createKeyEncoder() {
+    StringKeyEncoder encoder = createMixedRadixEncoder();
+    return encoder == null ? StringKeyEncoder.hashing() : encoder;
+  }
+
+  /**
+   * Exact encoder of generated strings, or null if they don't have fixed length or their number
+   * doesn't fit into a long.
+   */
+  StringKeyEncoder.MixedRadixEncoder createMixedRadixEncoder() {
+    List<RandomLetterPicker> positions = new ArrayList<>();
+    for (RegexNode node : nodes) {
+      if (!node.collectPositions(positions)) {
+        return null;
+      }
+    }
+    return StringKeyEncoder.forPositions(positions);
+  }
+
+  int getNumOfUpperLimit() {
+    return numOfUpperLimit;
+  }
+}
@@ -0,0 +1,102 @@
+package net.moznion.random.string;
+
+/**
+ * Keyed bijection on [0, size), by the FE1 scheme of format-preserving encryption; a Feistel
+ * network over [0, a * b) where a * b is slightly larger than size, with cycle walking to stay in
+ * the domain.
+ *
+ * <p>
+ * Round function is a keyed 64-bit mixer, so the permutation looks random but isn't
+ * cryptographically secure.
+ */
+class FeistelPermutation {
+  private static final int NUM_OF_ROUNDS = 8;
+
+  /**
+   * Domain is limited so that a * b doesn't overflow.
+   */
+  static final long MAX_SIZE = 1L << 62;
+
+  private final long size;
+  private final long a;
+  private final long b;
+  private final long[] roundKeys;
+
+  FeistelPermutation(long size, long key) {
+    if (size <= 0 || size > MAX_SIZE) {
+      throw new IllegalArgumentException("size must be between 1 and 2^62: " + size);
+    }
+    this.size = size;
+    long a = (long) Math.ceil(Math.sqrt((double) size));
+    while (a > 1 && (a - 1) * (a - 1) >= size) {
+      a--;
+    }
+    this.a = a;
+    this.b = (size + a - 1) / a;
+
+    roundKeys = new long[NUM_OF_ROUNDS];
+    long state = key;
+    for (int i = 0; i < NUM_OF_ROUNDS; i++) {
+      state += 0x9e3779b97f4a7c15L;
+      roundKeys[i] = mix(state);
+    }
+  }
+
+  long permute(final long index) {
+    checkIndex(index);
+    long x = index;
+    do {
+      x = encrypt(x);
+    } while (x >= size);
+    return x;
+  }
+
+  long inverse(final long permuted) {
+    checkIndex(permuted);
+    long x = permuted;
+    do {
+      x = decrypt(x);
+    } while (x >= size);
+    return x;
+  }
+
+  private long encrypt(long x) {
+    for (int i = 0; i < NUM_OF_ROUNDS; i++) {
+      final long left = x / b;
+      final long right = x % b;
+      final long w = Math.floorMod(left + round(i, right), a);
+      x = a * right + w;
+    }
+    return x;
+  }
+
+  private long decrypt(long x) {
+    for (int i = NUM_OF_ROUNDS - 1; i >= 0; i--) {
+      final long w = x % a;
+      final long right = x / a;
+      final long left = Math.floorMod(w - round(i, right), a);
+      x = b * left + right;
+    }
+    return x;
+  }
+
+  private long round(final int i, final long right) {
+    return Long.remainderUnsigned(mix(roundKeys[i] ^ right), a);
+  }
+
+  private void checkIndex(final long index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index must be between 0 and " + (size - 1) + ": "
+          + index);
+    }
+  }
+
+  /**
+   * Mixer of SplitMix64.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,86 @@
+package net.moznion.random.string;
+
+/**
+ * Listener of events of {@link RandomStringGenerator}, which is set by
+ * {@link RandomStringGenerator.Builder#setListener(GenerationListener)}.
+ *
+ * <p>
+ * All methods do nothing by default, so implement only the events you need. Methods are called
+ * synchronously from threads which generate strings, so implementations must be thread-safe and
+ * fast. No events are fired and no time is measured if a listener isn't set. See
+ * {@link GenerationMetrics} for a ready-made implementation.
+ *
+ * @author moznion
+ *
+ */
+public interface GenerationListener {
+  /**
+   * Kind of caches in the generator.
+   */
+  enum CacheType {
+    /**
+     * Cache of compiled regexes.
+     */
+    REGEX,
+
+    /**
+     * Cache of compiled patterns.
+     */
+    PATTERN,
+
+    /**
+     * Cache of character classes (e.g. {@code [a-z]}).
+     */
+    CHARACTER_CLASS
+  }
+
+  /**
+   * Called when a regex or a pattern has been compiled; compilation of a regex includes scanning of
+   * its character classes. Regexes and patterns which are found in the caches are not
+   * compiled.
+   *
+   * @param source Regex or pattern
+   * @param elapsedNanos Time to compile in nanoseconds
+   */
+  default void onCompile(String source, long elapsedNanos) {
+  }
+
+  /**
+   * Called when strings have been generated by a call. Bulk methods (e.g.
+   * {@link CompiledRegex#generateMany(String[])}) report all strings of the call at once, and
+   * {@link CompiledRegex#generateParallel(int, long)} reports once per chunk.
+   *
+   * @param source Regex or pattern
+   * @param numOfStrings Number of generated strings
+   * @param numOfChars Number of generated characters (bytes for byte outputs)
+   * @param numOfRandomDraws Number of calls of the source of randomness
+   * @param elapsedNanos Time to generate in nanoseconds
+   */
+  default void onGenerate(String source, long numOfStrings, long numOfChars,
+      long numOfRandomDraws, long elapsedNanos) {
+  }
+
+  /**
+   * Called when an entry has been found in a cache.
+   *
+   * @param cacheType Kind of the cache
+   */
+  default void onCacheHit(CacheType cacheType) {
+  }
+
+  /**
+   * Called when an entry hasn't been found in a cache.
+   *
+   * @param cacheType Kind of the cache
+   */
+  default void onCacheMiss(CacheType cacheType) {
+  }
+
+  /**
+   * Called when an entry has been evicted from a cache to keep its capacity.
+   *
+   * @param cacheType Kind of the cache
+   */
+  default void onCacheEviction(CacheType cacheType) {
+  }
+}
@@ -0,0 +1,288 @@
+package net.moznion.random.string;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Listener which aggregates events of generators into metrics.
+ *
+ * <p>
+ * Counters are {@link LongAdder}s, so an instance can be shared between many generators and
+ * threads without contention. Latency of generation is recorded per regex or pattern into a
+ * histogram whose buckets are powers of two, so percentiles are approximated by the upper bound
+ * of their bucket (at most twice the actual value). Up to 256 regexes and patterns are tracked
+ * separately and the rest is aggregated into {@value #OTHERS}.
+ *
+ * <pre>
+ * <code>
+ * GenerationMetrics metrics = new GenerationMetrics();
+ * metrics.registerMBean("net.moznion.random.string:type=GenerationMetrics");
+ * RandomStringGenerator generator = RandomStringGenerator.builder().setListener(metrics).build();
+ * </code>
+ * </pre>
+ *
+ * @author moznion
+ *
+ */
+public class GenerationMetrics implements GenerationListener, GenerationMetricsMXBean {
+  /**
+   * Key of latencies of regexes and patterns which are not tracked separately.
+   */
+  public static final String OTHERS = "(others)";
+
+  private static final int MAX_NUM_OF_SOURCES = 256;
+
+  private final LongAdder compileCount = new LongAdder();
+  private final LongAdder compileNanos = new LongAdder();
+  private final LongAdder generateCallCount = new LongAdder();
+  private final LongAdder generatedStringCount = new LongAdder();
+  private final LongAdder generatedCharCount = new LongAdder();
+  private final LongAdder randomDrawCount = new LongAdder();
+  private final LongAdder generateNanos = new LongAdder();
+  private final LongAdder regexCacheHitCount = new LongAdder();
+  private final LongAdder regexCacheMissCount = new LongAdder();
+  private final LongAdder regexCacheEvictionCount = new LongAdder();
+  private final LongAdder patternCacheHitCount = new LongAdder();
+  private final LongAdder patternCacheMissCount = new LongAdder();
+  private final LongAdder patternCacheEvictionCount = new LongAdder();
+  private final LongAdder characterClassCacheHitCount = new LongAdder();
+  private final LongAdder characterClassCacheMissCount = new LongAdder();
+  private final LongAdder characterClassCacheEvictionCount = new LongAdder();
+  private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+  @Override
+  public void onCompile(String source, long elapsedNanos) {
+    compileCount.increment();
+    compileNanos.add(elapsedNanos);
+  }
+
+  @Override
+  public void onGenerate(String source, long numOfStrings, long numOfChars,
+      long numOfRandomDraws, long elapsedNanos) {
+    generateCallCount.increment();
+    generatedStringCount.add(numOfStrings);
+    generatedCharCount.add(numOfChars);
+    randomDrawCount.add(numOfRandomDraws);
+    generateNanos.add(elapsedNanos);
+    histogramOf(source).record(elapsedNanos);
+  }
+
+  private LatencyHistogram histogramOf(final String source) {
+    LatencyHistogram histogram = latencies.get(source);
+    if (histogram != null) {
+      return histogram;
+    }
+    // size is approximate under contention, so the bound is approximate too
+    final String key = latencies.size() < MAX_NUM_OF_SOURCES ? source : OTHERS;
+    return latencies.computeIfAbsent(key, k -> new LatencyHistogram());
+  }
+
+  @Override
+  public void onCacheHit(CacheType cacheType) {
+    counterOf(cacheType, regexCacheHitCount, patternCacheHitCount, characterClassCacheHitCount)
+        .increment();
+  }
+
+  @Override
+  public void onCacheMiss(CacheType cacheType) {
+    counterOf(cacheType, regexCacheMissCount, patternCacheMissCount, characterClassCacheMissCount)
+        .increment();
+  }
+
+  @Override
+  public void onCacheEviction(CacheType cacheType) {
+    counterOf(cacheType, regexCacheEvictionCount, patternCacheEvictionCount,
+        characterClassCacheEvictionCount).increment();
+  }
+
+  private static LongAdder counterOf(final CacheType cacheType, final LongAdder regex,
+      final LongAdder pattern, final LongAdder characterClass) {
+    switch (cacheType) {
+      case REGEX:
+        return regex;
+      case PATTERN:
+        return pattern;
+      default:
+        return characterClass;
+    }
+  }
+
+  /**
+   * Register this instance to the platform MBean server.
+   *
+   * @param objectName Object name of the MBean, e.g.
+   *        {@code net.moznion.random.string:type=GenerationMetrics}
+   * @throws RuntimeException If the name is malformed or already registered
+   */
+  public void registerMBean(final String objectName) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+    } catch (JMException e) {
+      throw new RuntimeException("Cannot register MBean: " + objectName, e);
+    }
+  }
+
+  @Override
+  public long getCompileCount() {
+    return compileCount.sum();
+  }
+
+  @Override
+  public long getCompileNanos() {
+    return compileNanos.sum();
+  }
+
+  @Override
+  public long getGenerateCallCount() {
+    return generateCallCount.sum();
+  }
+
+  @Override
+  public long getGeneratedStringCount() {
+    return generatedStringCount.sum();
+  }
+
+  @Override
+  public long getGeneratedCharCount() {
+    return generatedCharCount.sum();
+  }
+
+  @Override
+  public long getRandomDrawCount() {
+    return randomDrawCount.sum();
+  }
+
+  @Override
+  public long getGenerateNanos() {
+    return generateNanos.sum();
+  }
+
+  @Override
+  public long getRegexCacheHitCount() {
+    return regexCacheHitCount.sum();
+  }
+
+  @Override
+  public long getRegexCacheMissCount() {
+    return regexCacheMissCount.sum();
+  }
+
+  @Override
+  public long getRegexCacheEvictionCount() {
+    return regexCacheEvictionCount.sum();
+  }
+
+  @Override
+  public long getPatternCacheHitCount() {
+    return patternCacheHitCount.sum();
+  }
+
+  @Override
+  public long getPatternCacheMissCount() {
+    return patternCacheMissCount.sum();
+  }
+
+  @Override
+  public long getPatternCacheEvictionCount() {
+    return patternCacheEvictionCount.sum();
+  }
+
+  @Override
+  public long getCharacterClassCacheHitCount() {
+    return characterClassCacheHitCount.sum();
+  }
+
+  @Override
+  public long getCharacterClassCacheMissCount() {
+    return characterClassCacheMissCount.sum();
+  }
+
+  @Override
+  public long getCharacterClassCacheEvictionCount() {
+    return characterClassCacheEvictionCount.sum();
+  }
+
+  @Override
+  public Map<String, Long> getGenerateCallCountBySource() {
+    return bySource(LatencyHistogram::count);
+  }
+
+  @Override
+  public Map<String, Long> getMedianLatencyNanosBySource() {
+    return bySource(histogram -> histogram.percentile(0.5));
+  }
+
+  @Override
+  public Map<String, Long> getP99LatencyNanosBySource() {
+    return bySource(histogram -> histogram.percentile(0.99));
+  }
+
+  private Map<String, Long> bySource(final ToLongFunction<LatencyHistogram> metric) {
+    Map<String, Long> result = new TreeMap<>();
+    for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+      result.put(entry.getKey(), metric.applyAsLong(entry.getValue()));
+    }
+    return result;
+  }
+
+  @Override
+  public void reset() {
+    for (LongAdder counter : new LongAdder[] {compileCount, compileNanos, generateCallCount,
+        generatedStringCount, generatedCharCount, randomDrawCount, generateNanos,
+        regexCacheHitCount, regexCacheMissCount, regexCacheEvictionCount, patternCacheHitCount,
+        patternCacheMissCount, patternCacheEvictionCount, characterClassCacheHitCount,
+        characterClassCacheMissCount, characterClassCacheEvictionCount}) {
+      counter.reset();
+    }
+    latencies.clear();
+  }
+
+  /**
+   * Histogram of latencies whose i-th bucket counts values in [2^i, 2^(i+1)).
+   */
+  private static class LatencyHistogram {
+    private static final int NUM_OF_BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_OF_BUCKETS);
+
+    void record(final long nanos) {
+      buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+    }
+
+    long count() {
+      long count = 0;
+      for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+        count += buckets.get(i);
+      }
+      return count;
+    }
+
+    /**
+     * Upper bound of the bucket which contains the percentile, or 0 if nothing is recorded.
+     */
+    long percentile(final double fraction) {
+      final long count = count();
+      if (count == 0) {
+        return 0;
+      }
+      final long rank = (long) Math.ceil(count * fraction);
+      long accumulated = 0;
+      for (int i = 0; i < NUM_OF_BUCKETS - 1; i++) {
+        accumulated += buckets.get(i);
+        if (accumulated >= rank) {
+          return (1L << (i + 1)) - 1;
+        }
+      }
+      return Long.MAX_VALUE;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package net.moznion.random.string;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link GenerationMetrics}, to expose metrics through JMX.
+ *
+ * @author moznion
+ *
+ */
+public interface GenerationMetricsMXBean {
+  /**
+   * Get number of compiled regexes and patterns.
+   *
+   * @return Number of compilations
+   */
+  long getCompileCount();
+
+  /**
+   * Get total time of compilation in nanoseconds.
+   *
+   * @return Total time of compilation
+   */
+  long getCompileNanos();
+
+  /**
+   * Get number of calls of generation.
+   *
+   * @return Number of calls
+   */
+  long getGenerateCallCount();
+
+  /**
+   * Get number of generated strings.
+   *
+   * @return Number of strings
+   */
+  long getGeneratedStringCount();
+
+  /**
+   * Get number of generated characters (bytes for byte outputs).
+   *
+   * @return Number of characters
+   */
+  long getGeneratedCharCount();
+
+  /**
+   * Get number of calls of sources of randomness.
+   *
+   * @return Number of random draws
+   */
+  long getRandomDrawCount();
+
+  /**
+   * Get total time of generation in nanoseconds.
+   *
+   * @return Total time of generation
+   */
+  long getGenerateNanos();
+
+  /**
+   * Get number of hits of the cache of compiled regexes.
+   *
+   * @return Number of hits
+   */
+  long getRegexCacheHitCount();
+
+  /**
+   * Get number of misses of the cache of compiled regexes.
+   *
+   * @return Number of misses
+   */
+  long getRegexCacheMissCount();
+
+  /**
+   * Get number of evictions from the cache of compiled regexes.
+   *
+   * @return Number of evictions
+   */
+  long getRegexCacheEvictionCount();
+
+  /**
+   * Get number of hits of the cache of compiled patterns.
+   *
+   * @return Number of hits
+   */
+  long getPatternCacheHitCount();
+
+  /**
+   * Get number of misses of the cache of compiled patterns.
+   *
+   * @return Number of misses
+   */
+  long getPatternCacheMissCount();
+
+  /**
+   * Get number of evictions from the cache of compiled patterns.
+   *
+   * @return Number of evictions
+   */
+  long getPatternCacheEvictionCount();
+
+  /**
+   * Get number of hits of the cache of character classes.
+   *
+   * @return Number of hits
+   */
+  long getCharacterClassCacheHitCount();
+
+  /**
+   * Get number of misses of the cache of character classes.
+   *
+   * @return Number of misses
+   */
+  long getCharacterClassCacheMissCount();
+
+  /**
+   * Get number of evictions from the cache of character classes.
+   *
+   * @return Number of evictions
+   */
+  long getCharacterClassCacheEvictionCount();
+
+  /**
+   * Get number of calls of generation per regex or pattern.
+   *
+   * @return Number of calls keyed by regex or pattern
+   */
+  Map<String, Long> getGenerateCallCountBySource();
+
+  /**
+   * Get median latency of a call of generation per regex or pattern, in nanoseconds.
+   *
+   * @return Median latency keyed by regex or pattern
+   */
+  Map<String, Long> getMedianLatencyNanosBySource();
+
+  /**
+   * Get 99th percentile latency of a call of generation per regex or pattern, in nanoseconds.
+   *
+   * @return 99th percentile latency keyed by regex or pattern
+   */
+  Map<String, Long> getP99LatencyNanosBySource();
+
+  /**
+   * Reset all metrics to zero.
+   */
+  void reset();
+}
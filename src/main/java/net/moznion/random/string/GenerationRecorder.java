@@ -0,0 +1,57 @@
+package net.moznion.random.string;
+
+/**
+ * Random source which counts draws and measures time of a call of generation, to report it to
+ * {@link GenerationListener}. An instance is created per call only if a listener is set, and isn't
+ * thread-safe.
+ */
+class GenerationRecorder implements RandomSource {
+  private final GenerationListener listener;
+  private final RandomSource source;
+  private final long startNanos;
+  private long numOfDraws;
+
+  private GenerationRecorder(GenerationListener listener, RandomSource source) {
+    this.listener = listener;
+    this.source = source;
+    this.startNanos = System.nanoTime();
+    this.numOfDraws = 0;
+  }
+
+  /**
+   * Start recording a call, or return null if the listener is null.
+   */
+  static GenerationRecorder start(final GenerationListener listener, final RandomSource source) {
+    return listener == null ? null : new GenerationRecorder(listener, source);
+  }
+
+  /**
+   * Source of randomness for the call; the recorder if it isn't null, otherwise the source itself.
+   */
+  static RandomSource sourceOf(final GenerationRecorder recorder, final RandomSource source) {
+    return recorder == null ? source : recorder;
+  }
+
+  void finish(final String source, final long numOfStrings, final long numOfChars) {
+    listener.onGenerate(source, numOfStrings, numOfChars, numOfDraws,
+        System.nanoTime() - startNanos);
+  }
+
+  @Override
+  public int nextInt(int bound) {
+    numOfDraws++;
+    return source.nextInt(bound);
+  }
+
+  @Override
+  public long nextLong() {
+    numOfDraws++;
+    return source.nextLong();
+  }
+
+  @Override
+  public void nextBytes(byte[] bytes) {
+    numOfDraws++;
+    source.nextBytes(bytes);
+  }
+}
@@ -0,0 +1,57 @@
+package net.moznion.random.string;
+
+/**
+ * Bounds of length of strings which are generated from a regex, computed by
+ * {@link RandomStringGenerator#lengthBounds(String)}.
+ *
+ * <p>
+ * Quantifiers are limited by number of upper limit as in {@link CompiledRegex#generate()}. Lengths
+ * are counted in code points for literals and character classes alike, so a supplementary
+ * character counts as one although it takes two chars of a String.
+ *
+ * @author moznion
+ *
+ */
+public class LengthBounds {
+  private final long min;
+  private final long max;
+  private final double expected;
+
+  LengthBounds(long min, long max, double expected) {
+    this.min = min;
+    this.max = max;
+    this.expected = expected;
+  }
+
+  /**
+   * Get minimum length of generated strings.
+   *
+   * @return Minimum length
+   */
+  public long getMin() {
+    return min;
+  }
+
+  /**
+   * Get maximum length of generated strings.
+   *
+   * @return Maximum length
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Get expected length of generated strings.
+   *
+   * @return Expected length
+   */
+  public double getExpected() {
+    return expected;
+  }
+
+  @Override
+  public String toString() {
+    return "LengthBounds{min=" + min + ", max=" + max + ", expected=" + expected + "}";
+  }
+}
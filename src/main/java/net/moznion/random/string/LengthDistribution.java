@@ -0,0 +1,94 @@
+package net.moznion.random.string;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of lengths of generated strings, for
+ * {@link CompiledRegex#generate(LengthDistribution)}.
+ *
+ * @author moznion
+ *
+ */
+@FunctionalInterface
+public interface LengthDistribution {
+  /**
+   * Sample a length.
+   *
+   * @param random Source of randomness
+   * @return Length of a string to generate
+   */
+  int sample(RandomSource random);
+
+  /**
+   * Distribution which always returns the length.
+   *
+   * @param length Length of strings
+   * @return Distribution
+   */
+  static LengthDistribution exactly(int length) {
+    if (length < 0) {
+      throw new IllegalArgumentException("length must not be negative: " + length);
+    }
+    return random -> length;
+  }
+
+  /**
+   * Uniform distribution between min and max (both inclusive).
+   *
+   * @param min Minimum length
+   * @param max Maximum length
+   * @return Distribution
+   */
+  static LengthDistribution uniform(int min, int max) {
+    if (min < 0 || min > max) {
+      throw new IllegalArgumentException("Detected invalid range of length: [" + min + "," + max
+          + "]");
+    }
+    return random -> min + random.nextInt(max - min + 1);
+  }
+
+  /**
+   * Distribution which follows a histogram; {@code lengths[i]} is returned with probability
+   * proportional to {@code weights[i]}.
+   *
+   * @param lengths Lengths of strings
+   * @param weights Weights of lengths
+   * @return Distribution
+   */
+  static LengthDistribution histogram(int[] lengths, double[] weights) {
+    if (lengths.length == 0 || lengths.length != weights.length) {
+      throw new IllegalArgumentException("lengths and weights must have the same non-zero size");
+    }
+    final int[] copiedLengths = Arrays.copyOf(lengths, lengths.length);
+    final double[] cumulativeWeights = new double[weights.length];
+    double total = 0;
+    for (int i = 0; i < weights.length; i++) {
+      if (copiedLengths[i] < 0 || !(weights[i] >= 0)) {
+        throw new IllegalArgumentException("lengths and weights must not be negative");
+      }
+      total += weights[i];
+      cumulativeWeights[i] = total;
+    }
+    if (!(total > 0) || Double.isInfinite(total)) {
+      throw new IllegalArgumentException("Sum of weights must be positive and finite");
+    }
+
+    final double sum = total;
+    return random -> {
+      double point = (random.nextLong() >>> 11) * 0x1.0p-53 * sum;
+
+      // find the first bucket whose cumulative weight exceeds the point
+      int low = 0;
+      int high = cumulativeWeights.length - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (cumulativeWeights[middle] > point) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return copiedLengths[low];
+    };
+  }
+}
@@ -0,0 +1,188 @@
+package net.moznion.random.string;
+
+/**
+ * Set of lengths between 0 and a limit (inclusive) as a bitmap, to find lengths which groups of
+ * regex can generate. Instance of this class isn't thread-safe.
+ */
+class LengthSet {
+  private final int limit;
+  private final long[] words;
+
+  LengthSet(int limit) {
+    this.limit = limit;
+    words = new long[(limit >>> 6) + 1];
+  }
+
+  /**
+   * Set of lengths between from and to (inclusive), which are limited by the limit.
+   */
+  static LengthSet range(final int from, final int to, final int limit) {
+    LengthSet set = new LengthSet(limit);
+    for (int length = from; length <= Math.min(to, limit); length++) {
+      set.add(length);
+    }
+    return set;
+  }
+
+  void add(final int length) {
+    words[length >>> 6] |= 1L << length;
+  }
+
+  boolean contains(final int length) {
+    return length >= 0 && length <= limit && (words[length >>> 6] & (1L << length)) != 0;
+  }
+
+  int size() {
+    int size = 0;
+    for (long word : words) {
+      size += Long.bitCount(word);
+    }
+    return size;
+  }
+
+  boolean isEmpty() {
+    for (long word : words) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the smallest length in this set which is at least from, or -1 if there is none.
+   */
+  int next(final int from) {
+    return next(from, limit);
+  }
+
+  /**
+   * Get the smallest length in this set between from and to, or -1 if there is none. Only words
+   * up to to are scanned.
+   */
+  int next(final int from, final int to) {
+    final int last = Math.min(to, limit);
+    if (from > last) {
+      return -1;
+    }
+    final int lastWord = last >>> 6;
+    int i = from >>> 6;
+    long word = words[i] & (-1L << from);
+    while (word == 0) {
+      if (++i > lastWord) {
+        return -1;
+      }
+      word = words[i];
+    }
+    final int length = (i << 6) + Long.numberOfTrailingZeros(word);
+    return length <= last ? length : -1;
+  }
+
+  /**
+   * Get the largest length in this set, or -1 if it is empty.
+   */
+  int last() {
+    for (int i = words.length - 1; i >= 0; i--) {
+      if (words[i] != 0) {
+        return (i << 6) + 63 - Long.numberOfLeadingZeros(words[i]);
+      }
+    }
+    return -1;
+  }
+
+  void addAll(final LengthSet other) {
+    for (int i = 0; i < words.length; i++) {
+      words[i] |= other.words[i];
+    }
+  }
+
+  /**
+   * Set of sums of a length in this set and a length in the other, up to the limit. Each length of
+   * the smaller set shifts the whole bitmap of the larger one, so this takes time proportional to
+   * size of the smaller set times the limit / 64.
+   */
+  LengthSet plus(final LengthSet other) {
+    if (other.size() > size()) {
+      return other.plus(this);
+    }
+    LengthSet sum = new LengthSet(limit);
+    for (int shift = other.next(0); shift >= 0; shift = other.next(shift + 1)) {
+      final int wordShift = shift >>> 6;
+      final int bitShift = shift & 63;
+      for (int i = 0; i + wordShift < words.length; i++) {
+        final long word = words[i];
+        if (word == 0) {
+          continue;
+        }
+        sum.words[i + wordShift] |= word << bitShift;
+        if (bitShift != 0 && i + wordShift + 1 < words.length) {
+          sum.words[i + wordShift + 1] |= word >>> (64 - bitShift);
+        }
+      }
+    }
+    // clear lengths beyond the limit in the last word
+    sum.words[words.length - 1] &= -1L >>> (63 - (limit & 63));
+    return sum;
+  }
+
+  /**
+   * Set of sums of any number of lengths in this set (including the empty sum 0), up to the limit.
+   *
+   * <p>
+   * This is a coin problem: reachable[l] |= reachable[l - b] for each length b in ascending order
+   * of l, which is a single pass per b. A length which is already reachable by shorter ones adds
+   * nothing, so only lengths in distinct residues modulo the shortest positive length take a pass.
+   * Each pass works on whole words, so this takes time proportional to the limit / 64 times number
+   * of those lengths, instead of the limit divided by the shortest length.
+   */
+  LengthSet closure() {
+    LengthSet closure = new LengthSet(limit);
+    closure.add(0);
+    for (int b = next(1); b >= 0; b = next(b + 1)) {
+      if (!closure.contains(b)) {
+        closure.addMultiplesOf(b);
+      }
+    }
+    return closure;
+  }
+
+  /**
+   * Add l + k * step for every length l in this set and every k, in a single ascending pass.
+   */
+  private void addMultiplesOf(final int step) {
+    if (step >= Long.SIZE) {
+      // a bit comes from strictly lower words, which are already complete
+      final int wordShift = step >>> 6;
+      final int bitShift = step & 63;
+      for (int i = wordShift; i < words.length; i++) {
+        long carry = words[i - wordShift] << bitShift;
+        if (bitShift != 0 && i - wordShift - 1 >= 0) {
+          carry |= words[i - wordShift - 1] >>> (64 - bitShift);
+        }
+        words[i] |= carry;
+      }
+    } else {
+      long previous = 0;
+      for (int i = 0; i < words.length; i++) {
+        long word = words[i] | (previous >>> (64 - step));
+        // close the word under shifts by step, doubling the reach of each shift
+        for (int shift = step; shift < Long.SIZE; shift <<= 1) {
+          word |= word << shift;
+        }
+        words[i] = word;
+        previous = word;
+      }
+    }
+    // clear lengths beyond the limit in the last word
+    words[words.length - 1] &= -1L >>> (63 - (limit & 63));
+  }
+
+  boolean sameAs(final LengthSet other) {
+    for (int i = 0; i < words.length; i++) {
+      if (words[i] != other.words[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
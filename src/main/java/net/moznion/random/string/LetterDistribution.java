@@ -0,0 +1,114 @@
+package net.moznion.random.string;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Distribution of letters, which picks each letter with probability proportional to its weight
+ * (e.g. frequencies of letters in English text).
+ *
+ * <p>
+ * Letters are picked by an alias table (Walker's alias method), so a letter takes a single random
+ * draw and constant time however many letters and however skewed weights are. Register a
+ * distribution by {@link RandomStringGenerator.Builder#addLetterDistribution(String,
+ * LetterDistribution)} to use it by name in regexes ({@code \p{name}}) and patterns
+ * ({@code {name}}). Instance of this class is immutable and can be shared between threads.
+ *
+ * <pre>
+ * <code>
+ * Map&lt;String, Double&gt; weights = new LinkedHashMap&lt;&gt;();
+ * weights.put("a", 9.0);
+ * weights.put("b", 1.0);
+ * RandomStringGenerator generator = RandomStringGenerator.builder()
+ *     .addLetterDistribution("skewed", LetterDistribution.of(weights))
+ *     .build();
+ *
+ * // generates random string (e.g. "aaabaaaa-1234")
+ * String randomString = generator.generateByRegex("\\p{skewed}{8}-\\d{4}");
+ * </code>
+ * </pre>
+ *
+ * @author moznion
+ *
+ */
+public class LetterDistribution {
+  /**
+   * Relative frequencies of letters a to z in English text, in percent.
+   */
+  private static final double[] ENGLISH_FREQUENCIES = {
+      8.167, 1.492, 2.782, 4.253, 12.702, 2.228, 2.015, 6.094, 6.966, 0.153, 0.772, 4.025, 2.406,
+      6.749, 7.507, 1.929, 0.095, 5.987, 6.327, 9.056, 2.758, 0.978, 2.360, 0.150, 1.974, 0.074};
+
+  private final RandomLetterPicker picker;
+
+  private LetterDistribution(RandomLetterPicker picker) {
+    this.picker = picker;
+  }
+
+  /**
+   * Distribution by weights of letters. Iteration order of the map decides the order of letters,
+   * so please use a sorted or linked map to get the same strings from the same seed.
+   *
+   * @param weights Weights keyed by letters; each letter must be a single character
+   * @return Distribution
+   * @throws IllegalArgumentException If a weight is negative or not finite, or all of them are 0
+   */
+  public static LetterDistribution of(Map<String, ? extends Number> weights) {
+    return new LetterDistribution(RandomLetterPicker.builder().addAll(weights).build());
+  }
+
+  /**
+   * Uniform distribution of letters.
+   *
+   * @param letters Letters to pick; a letter which appears twice is picked twice as often
+   * @return Distribution
+   */
+  public static LetterDistribution uniform(String letters) {
+    if (letters.isEmpty()) {
+      throw new IllegalArgumentException("letters must not be empty");
+    }
+    RandomLetterPicker.Builder builder = RandomLetterPicker.builder();
+    for (int i = 0; i < letters.length(); i++) {
+      builder.add(String.valueOf(letters.charAt(i)));
+    }
+    return new LetterDistribution(builder.build());
+  }
+
+  /**
+   * Distribution of Latin lower-case letters by their frequencies in English text.
+   *
+   * @return Distribution
+   */
+  public static LetterDistribution english() {
+    Map<String, Double> weights = new LinkedHashMap<>();
+    for (int i = 0; i < ENGLISH_FREQUENCIES.length; i++) {
+      weights.put(String.valueOf((char) ('a' + i)), ENGLISH_FREQUENCIES[i]);
+    }
+    return of(weights);
+  }
+
+  /**
+   * Pick a letter.
+   *
+   * @param random Source of randomness
+   * @return Letter
+   */
+  public char pick(RandomSource random) {
+    return picker.pickChar(random);
+  }
+
+  /**
+   * Pick letters and append them to the target.
+   *
+   * @param target Buffer to append letters
+   * @param count Number of letters
+   * @param random Source of randomness
+   */
+  public void appendTo(StringBuilder target, int count, RandomSource random) {
+    picker.appendTo(target, count, random);
+  }
+
+  RandomLetterPicker getPicker() {
+    return picker;
+  }
+}
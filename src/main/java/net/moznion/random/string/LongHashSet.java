@@ -0,0 +1,93 @@
+package net.moznion.random.string;
+
+/**
+ * Set of long values by open addressing with linear probing. This takes 16 to 32 bytes per entry
+ * (a slot is 8 bytes and at most half of slots are used), so it is much more compact than
+ * {@code HashSet<Long>}.
+ *
+ * <p>
+ * 0 marks an empty slot, so value 0 is tracked by a flag. This class is not thread-safe.
+ */
+class LongHashSet {
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private long[] slots;
+  private int mask;
+  private int size;
+  private boolean containsZero;
+
+  LongHashSet() {
+    slots = new long[INITIAL_CAPACITY];
+    mask = INITIAL_CAPACITY - 1;
+    size = 0;
+    containsZero = false;
+  }
+
+  /**
+   * Add the value.
+   *
+   * @return true if the value hasn't been contained
+   */
+  boolean add(final long value) {
+    if (value == 0) {
+      if (containsZero) {
+        return false;
+      }
+      containsZero = true;
+      size++;
+      return true;
+    }
+
+    for (int i = slotOf(value, mask);; i = (i + 1) & mask) {
+      final long slot = slots[i];
+      if (slot == value) {
+        return false;
+      }
+      if (slot == 0) {
+        slots[i] = value;
+        if (++size > slots.length >>> 1) {
+          grow();
+        }
+        return true;
+      }
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Get number of bytes which are occupied by slots.
+   */
+  long bytesOfSlots() {
+    return (long) slots.length * Long.BYTES;
+  }
+
+  private void grow() {
+    if (slots.length == MAX_CAPACITY) {
+      throw new RuntimeException("Too many values to track: " + size);
+    }
+    final long[] oldSlots = slots;
+    slots = new long[oldSlots.length << 1];
+    mask = slots.length - 1;
+    for (long value : oldSlots) {
+      if (value != 0) {
+        int i = slotOf(value, mask);
+        while (slots[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        slots[i] = value;
+      }
+    }
+  }
+
+  private static int slotOf(final long value, final int mask) {
+    // finalizer of MurmurHash3, to spread sequential values
+    long h = value;
+    h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+    h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return (int) (h ^ (h >>> 33)) & mask;
+  }
+}
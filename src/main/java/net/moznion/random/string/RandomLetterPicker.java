@@ -4,57 +4,106 @@ import lombok.Getter;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 class RandomLetterPicker {
-  private final List<String> letters;
+  private final char[] letters;
+  private final byte[] bytes;
   private final int size;
-  private final Random random;
+  private final int bitsPerIndex;
+  private final int indexMask;
+  private final int byteRejectionThreshold;
+  private final boolean ascii;
+  // alias table of weighted letters, or null if letters are uniform
+  private final long[] aliasThresholds;
+  private final int[] aliases;
+
+  /**
+   * Runs of letters which are at least this long are filled in bulk.
+   */
+  static final int BULK_FILL_THRESHOLD = 32;
+  private static final int NUM_OF_BYTE_VALUES = 1 << Byte.SIZE;
+  private static final double TWO_TO_32 = 0x1.0p32;
 
   @Getter
   public static class Builder {
     private List<String> letters;
-    private Random random;
+    private List<Double> weights;
 
     public Builder() {
       letters = new ArrayList<>();
-      random = null;
+      weights = new ArrayList<>();
     }
 
     public <E extends Enum<E> & Letter> Builder addAllByEnum(Class<E> enumClass) {
-      letters.addAll(Arrays.stream(enumClass.getEnumConstants())
-          .map(e -> e.getLetter())
-          .collect(Collectors.toList()));
+      for (E e : enumClass.getEnumConstants()) {
+        add(e.getLetter());
+      }
       return this;
     }
 
     public Builder addAll(List<String> list) {
-      letters.addAll(list);
+      for (String letter : list) {
+        add(letter);
+      }
       return this;
     }
 
-    public Builder add(String letter) {
-      letters.add(letter);
+    /**
+     * Add letters with their weights, e.g. frequencies of letters. Iteration order of the map
+     * decides the order of letters, so please use a sorted or linked map to get the same strings
+     * from the same seed.
+     */
+    public Builder addAll(Map<String, ? extends Number> weightsOfLetters) {
+      for (Map.Entry<String, ? extends Number> entry : weightsOfLetters.entrySet()) {
+        add(entry.getKey(), entry.getValue().doubleValue());
+      }
       return this;
     }
 
-    public Builder remove(String remove) {
-      letters = letters.stream()
-          .filter(l -> !l.equals(remove))
-          .collect(Collectors.toList());
+    /**
+     * Add a letter of weight 1.
+     */
+    public Builder add(String letter) {
+      return add(letter, 1);
+    }
+
+    /**
+     * Add a letter with its weight. Each letter is picked with probability proportional to its
+     * weight; a letter which is added twice is weighted by the sum.
+     */
+    public Builder add(String letter, double weight) {
+      letters.add(letter);
+      weights.add(weight);
       return this;
     }
 
-    public Builder setRandom(Random random) {
-      this.random = random;
+    public Builder remove(String remove) {
+      List<String> remainingLetters = new ArrayList<>();
+      List<Double> remainingWeights = new ArrayList<>();
+      for (int i = 0; i < letters.size(); i++) {
+        if (!letters.get(i).equals(remove)) {
+          remainingLetters.add(letters.get(i));
+          remainingWeights.add(weights.get(i));
+        }
+      }
+      letters = remainingLetters;
+      weights = remainingWeights;
       return this;
     }
 
+    /**
+     * Build a picker; it picks letters uniformly unless different weights are given.
+     *
+     * @throws IllegalArgumentException If a weight is negative or not finite, or all of them are 0
+     */
     public RandomLetterPicker build() {
-      return new RandomLetterPicker(this);
+      double[] weightArray = new double[weights.size()];
+      for (int i = 0; i < weightArray.length; i++) {
+        weightArray[i] = weights.get(i);
+      }
+      return constructByWeights(toCharArray(letters), weightArray);
     }
   }
 
@@ -62,39 +111,466 @@ class RandomLetterPicker {
     return new Builder();
   }
 
-  private RandomLetterPicker(Builder b) {
-    letters = Collections.unmodifiableList(b.getLetters());
-    if (b.getRandom() == null) {
-      random = new Random();
-    } else {
-      random = b.getRandom();
+  private RandomLetterPicker(char[] letters) {
+    this(letters, null);
+  }
+
+  private RandomLetterPicker(char[] letters, double[] weights) {
+    this.letters = letters;
+    bytes = toByteArray(letters);
+    size = letters.length;
+    bitsPerIndex = size > 1 ? BatchedRandomSource.bitsForBound(size) : 0;
+    indexMask = (1 << bitsPerIndex) - 1;
+    // a random byte b is accepted if the low byte of b * size is at least this (Lemire's method)
+    byteRejectionThreshold = weights == null && size > 1 && size <= NUM_OF_BYTE_VALUES
+        ? (NUM_OF_BYTE_VALUES - size) % size
+        : -1;
+    ascii = isAscii(letters);
+
+    if (weights == null) {
+      aliasThresholds = null;
+      aliases = null;
+      return;
+    }
+    aliasThresholds = new long[size];
+    aliases = new int[size];
+    buildAliasTable(weights);
+  }
+
+  /**
+   * Build the alias table by Vose's algorithm. Each column i keeps letter i with probability
+   * aliasThresholds[i] / 2^32 and its alias otherwise, and every column is chosen uniformly, so a
+   * letter is picked in constant time whatever the weights are.
+   */
+  private void buildAliasTable(final double[] weights) {
+    double sum = 0;
+    for (double weight : weights) {
+      sum += weight;
+    }
+
+    // probabilities scaled so that their average is 1
+    final double[] scaled = new double[size];
+    final int[] small = new int[size];
+    final int[] large = new int[size];
+    int numOfSmall = 0;
+    int numOfLarge = 0;
+    for (int i = 0; i < size; i++) {
+      scaled[i] = weights[i] * size / sum;
+      if (scaled[i] < 1) {
+        small[numOfSmall++] = i;
+      } else {
+        large[numOfLarge++] = i;
+      }
+    }
+
+    while (numOfSmall > 0 && numOfLarge > 0) {
+      final int s = small[--numOfSmall];
+      final int l = large[--numOfLarge];
+      aliasThresholds[s] = (long) (scaled[s] * TWO_TO_32);
+      aliases[s] = l;
+      // the large one gives the rest of column s
+      scaled[l] = (scaled[l] + scaled[s]) - 1;
+      if (scaled[l] < 1) {
+        small[numOfSmall++] = l;
+      } else {
+        large[numOfLarge++] = l;
+      }
+    }
+    // the rest are full columns; small ones here are only due to rounding errors
+    while (numOfLarge > 0) {
+      final int l = large[--numOfLarge];
+      aliasThresholds[l] = 1L << 32;
+      aliases[l] = l;
+    }
+    while (numOfSmall > 0) {
+      final int s = small[--numOfSmall];
+      aliasThresholds[s] = 1L << 32;
+      aliases[s] = s;
+    }
+  }
+
+  /**
+   * Index of a weighted letter by a random word; the high half chooses a column by multiply-shift
+   * and the low half decides between the column and its alias. Both are 32 bits, so bias is
+   * bounded by 2^-32 like quantization of the weights themselves.
+   */
+  private int pickWeightedIndex(final long word) {
+    final int column = (int) (((word >>> 32) * size) >>> 32);
+    return (word & 0xffffffffL) < aliasThresholds[column] ? column : aliases[column];
+  }
+
+  /**
+   * Letters as raw bytes, or null if some of them don't fit into a byte.
+   */
+  private static byte[] toByteArray(final char[] letters) {
+    byte[] bytes = new byte[letters.length];
+    for (int i = 0; i < letters.length; i++) {
+      if (letters[i] > 0xff) {
+        return null;
+      }
+      bytes[i] = (byte) letters[i];
+    }
+    return bytes;
+  }
+
+  static boolean isAscii(final char[] chars) {
+    for (char c : chars) {
+      if (c > 0x7f) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static char[] toCharArray(final List<String> letters) {
+    char[] chars = new char[letters.size()];
+    for (int i = 0; i < chars.length; i++) {
+      String letter = letters.get(i);
+      if (letter.length() != 1) {
+        throw new RuntimeException("Letter must be a single character: " + letter);
+      }
+      chars[i] = letter.charAt(0);
+    }
+    return chars;
+  }
+
+  public char pickChar(final RandomSource random) {
+    if (aliases != null) {
+      return letters[pickWeightedIndex(random.nextLong())];
+    }
+    return letters[random.nextInt(size)];
+  }
+
+  public void appendTo(final StringBuilder sb, final RandomSource random) {
+    sb.append(pickChar(random));
+  }
+
+  /**
+   * Append count letters to sb. This takes several indexes from each random word, so that number of
+   * calls of the random source is cut down for long strings.
+   */
+  public void appendTo(final StringBuilder sb, final int count, final RandomSource random) {
+    if (count >= BULK_FILL_THRESHOLD && byteRejectionThreshold >= 0) {
+      final int start = sb.length();
+      sb.setLength(start + count);
+      fillInBulk(sb, start, count, random);
+      return;
+    }
+
+    if (aliases != null) {
+      sb.ensureCapacity(sb.length() + count);
+      for (int i = 0; i < count; i++) {
+        sb.append(letters[pickWeightedIndex(random.nextLong())]);
+      }
+      return;
+    }
+
+    if (bitsPerIndex == 0) {
+      for (int i = 0; i < count; i++) {
+        sb.append(letters[random.nextInt(size)]);
+      }
+      return;
+    }
+
+    sb.ensureCapacity(sb.length() + count);
+    long word = 0;
+    int numOfBits = 0;
+    for (int i = 0; i < count;) {
+      if (numOfBits < bitsPerIndex) {
+        word = random.nextLong();
+        numOfBits = Long.SIZE;
+      }
+      int index = (int) word & indexMask;
+      word >>>= bitsPerIndex;
+      numOfBits -= bitsPerIndex;
+      if (index < size) { // reject to keep uniform distribution
+        sb.append(letters[index]);
+        i++;
+      }
+    }
+  }
+
+  /**
+   * Fill letters into dst. This takes several indexes from each random word as well as
+   * {@link #appendTo(StringBuilder, int, RandomSource)}.
+   */
+  public void fill(final char[] dst, final int off, final int len, final RandomSource random) {
+    if (len >= BULK_FILL_THRESHOLD && byteRejectionThreshold >= 0) {
+      fillInBulk(dst, off, len, random);
+      return;
     }
 
-    size = letters.size();
+    final int end = off + len;
+    if (aliases != null) {
+      for (int i = off; i < end; i++) {
+        dst[i] = letters[pickWeightedIndex(random.nextLong())];
+      }
+      return;
+    }
+
+    if (bitsPerIndex == 0) {
+      for (int i = off; i < end; i++) {
+        dst[i] = letters[random.nextInt(size)];
+      }
+      return;
+    }
+
+    long word = 0;
+    int numOfBits = 0;
+    for (int i = off; i < end;) {
+      if (numOfBits < bitsPerIndex) {
+        word = random.nextLong();
+        numOfBits = Long.SIZE;
+      }
+      int index = (int) word & indexMask;
+      word >>>= bitsPerIndex;
+      numOfBits -= bitsPerIndex;
+      if (index < size) { // reject to keep uniform distribution
+        dst[i++] = letters[index];
+      }
+    }
+  }
+
+  /**
+   * Fill letters into dst by mapping random words to letters in bulk. When number of letters is a
+   * power of two, each word is split into as many indexes as it can hold by masking. Otherwise
+   * each byte of a word is mapped by a multiply-shift which rejects a few values to stay unbiased.
+   * Inner loops have fixed trip counts and no branches, so that JIT can unroll them.
+   */
+  private void fillInBulk(final char[] dst, final int off, final int len,
+      final RandomSource random) {
+    final int end = off + len;
+    int i = off;
+    if (size == 1 << bitsPerIndex) {
+      final int indexesPerWord = Long.SIZE / bitsPerIndex;
+      for (; i + indexesPerWord <= end; i += indexesPerWord) {
+        long word = random.nextLong();
+        for (int k = 0; k < indexesPerWord; k++) {
+          dst[i + k] = letters[(int) word & indexMask];
+          word >>>= bitsPerIndex;
+        }
+      }
+      if (i < end) {
+        long word = random.nextLong();
+        for (; i < end; i++) {
+          dst[i] = letters[(int) word & indexMask];
+          word >>>= bitsPerIndex;
+        }
+      }
+      return;
+    }
+
+    while (i < end - Long.BYTES) {
+      long word = random.nextLong();
+      for (int k = 0; k < Long.BYTES; k++) {
+        final int m = ((int) word & 0xff) * size;
+        dst[i] = letters[m >>> Byte.SIZE];
+        // a rejected letter is overwritten by the next one
+        i += (m & 0xff) >= byteRejectionThreshold ? 1 : 0;
+        word >>>= Byte.SIZE;
+      }
+    }
+    while (i < end) {
+      long word = random.nextLong();
+      for (int k = 0; k < Long.BYTES && i < end; k++) {
+        final int m = ((int) word & 0xff) * size;
+        dst[i] = letters[m >>> Byte.SIZE];
+        i += (m & 0xff) >= byteRejectionThreshold ? 1 : 0;
+        word >>>= Byte.SIZE;
+      }
+    }
   }
 
-  public String pickRandomLetter() {
-    return letters.get(random.nextInt(size));
+  /**
+   * Fill letters into sb from off in place, as well as
+   * {@link #fillInBulk(char[], int, int, RandomSource)}; sb must already be long enough.
+   */
+  private void fillInBulk(final StringBuilder sb, final int off, final int len,
+      final RandomSource random) {
+    final int end = off + len;
+    int i = off;
+    if (size == 1 << bitsPerIndex) {
+      final int indexesPerWord = Long.SIZE / bitsPerIndex;
+      for (; i + indexesPerWord <= end; i += indexesPerWord) {
+        long word = random.nextLong();
+        for (int k = 0; k < indexesPerWord; k++) {
+          sb.setCharAt(i + k, letters[(int) word & indexMask]);
+          word >>>= bitsPerIndex;
+        }
+      }
+      if (i < end) {
+        long word = random.nextLong();
+        for (; i < end; i++) {
+          sb.setCharAt(i, letters[(int) word & indexMask]);
+          word >>>= bitsPerIndex;
+        }
+      }
+      return;
+    }
+
+    while (i < end - Long.BYTES) {
+      long word = random.nextLong();
+      for (int k = 0; k < Long.BYTES; k++) {
+        final int m = ((int) word & 0xff) * size;
+        sb.setCharAt(i, letters[m >>> Byte.SIZE]);
+        i += (m & 0xff) >= byteRejectionThreshold ? 1 : 0;
+        word >>>= Byte.SIZE;
+      }
+    }
+    while (i < end) {
+      long word = random.nextLong();
+      for (int k = 0; k < Long.BYTES && i < end; k++) {
+        final int m = ((int) word & 0xff) * size;
+        sb.setCharAt(i, letters[m >>> Byte.SIZE]);
+        i += (m & 0xff) >= byteRejectionThreshold ? 1 : 0;
+        word >>>= Byte.SIZE;
+      }
+    }
   }
 
-  public static RandomLetterPicker constructByCharacterRange(final List<String> bounds) {
-    Builder definedPickerBuilder = builder();
-    int bufferSize = bounds.size();
+  public byte pickByte(final RandomSource random) {
+    if (aliases != null) {
+      return bytes()[pickWeightedIndex(random.nextLong())];
+    }
+    return bytes()[random.nextInt(size)];
+  }
 
-    for (int i = 0; i < bufferSize; i += 2) {
-      int beginCode = (int) bounds.get(i).charAt(0);
-      int endCode = (int) bounds.get(i + 1).charAt(0);
+  /**
+   * Fill letters into dst as raw bytes; letters must be between U+0000 and U+00FF. This takes
+   * several indexes from each random word as well as {@link #fill(char[], int, int, RandomSource)}.
+   */
+  public void fill(final byte[] dst, final int off, final int len, final RandomSource random) {
+    final byte[] bytes = bytes();
+    final int end = off + len;
+    if (aliases != null) {
+      for (int i = off; i < end; i++) {
+        dst[i] = bytes[pickWeightedIndex(random.nextLong())];
+      }
+      return;
+    }
 
-      if (beginCode > endCode) {
-        throw new RuntimeException("Detected invalid character range: ["
-            + (char) beginCode + "-" + (char) endCode + "]");
+    if (bitsPerIndex == 0) {
+      for (int i = off; i < end; i++) {
+        dst[i] = bytes[random.nextInt(size)];
       }
+      return;
+    }
+
+    long word = 0;
+    int numOfBits = 0;
+    for (int i = off; i < end;) {
+      if (numOfBits < bitsPerIndex) {
+        word = random.nextLong();
+        numOfBits = Long.SIZE;
+      }
+      int index = (int) word & indexMask;
+      word >>>= bitsPerIndex;
+      numOfBits -= bitsPerIndex;
+      if (index < size) { // reject to keep uniform distribution
+        dst[i++] = bytes[index];
+      }
+    }
+  }
+
+  private byte[] bytes() {
+    if (bytes == null) {
+      throw new RuntimeException("Letters can't be represented as bytes: " + new String(letters));
+    }
+    return bytes;
+  }
+
+  char[] getLetters() {
+    return letters;
+  }
+
+  /**
+   * Get distinct letters of this picker in ascending order.
+   */
+  char[] getDistinctLetters() {
+    char[] sorted = Arrays.copyOf(letters, letters.length);
+    Arrays.sort(sorted);
+    int numOfDistinctLetters = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[numOfDistinctLetters++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, numOfDistinctLetters);
+  }
+
+  /**
+   * Whether all letters of this picker are ASCII characters.
+   */
+  public boolean isAscii() {
+    return ascii;
+  }
+
+  /**
+   * Whether letters of this picker have different weights.
+   */
+  boolean isWeighted() {
+    return aliases != null;
+  }
+
+  /**
+   * Construct by letters and their weights. Letters of weight 0 are dropped, and letters of the
+   * same weights are picked uniformly as well as the other constructors.
+   *
+   * @throws IllegalArgumentException If a weight is negative or not finite, or all of them are 0
+   */
+  static RandomLetterPicker constructByWeights(final char[] letters, final double[] weights) {
+    char[] weightedLetters = new char[letters.length];
+    double[] positiveWeights = new double[letters.length];
+    int numOfLetters = 0;
+    double sum = 0;
+    for (int i = 0; i < letters.length; i++) {
+      if (!(weights[i] >= 0) || Double.isInfinite(weights[i])) {
+        throw new IllegalArgumentException(
+            "Weight of letter must be non-negative and finite: " + letters[i] + "=" + weights[i]);
+      }
+      if (weights[i] > 0) {
+        weightedLetters[numOfLetters] = letters[i];
+        positiveWeights[numOfLetters++] = weights[i];
+        sum += weights[i];
+      }
+    }
+    if (!(sum > 0) || Double.isInfinite(sum)) {
+      throw new IllegalArgumentException("Sum of weights must be positive and finite");
+    }
+
+    weightedLetters = Arrays.copyOf(weightedLetters, numOfLetters);
+    for (int i = 1; i < numOfLetters; i++) {
+      if (positiveWeights[i] != positiveWeights[0]) {
+        return new RandomLetterPicker(weightedLetters,
+            Arrays.copyOf(positiveWeights, numOfLetters));
+      }
+    }
+    return new RandomLetterPicker(weightedLetters);
+  }
+
+  public static RandomLetterPicker constructByLetter(final char letter) {
+    return new RandomLetterPicker(new char[] {letter});
+  }
+
+  /**
+   * Construct by the first numOfIntervals intervals of code points in the BMP, which are pairs of
+   * the first and the last code points. Letters are kept in the order of intervals.
+   */
+  static RandomLetterPicker constructByCodePointIntervals(final int[][] intervals,
+      final int numOfIntervals) {
+    int numOfLetters = 0;
+    for (int i = 0; i < numOfIntervals; i++) {
+      numOfLetters += intervals[i][1] - intervals[i][0] + 1;
+    }
 
-      for (int code = beginCode; code <= endCode; code++) {
-        definedPickerBuilder.add(String.valueOf((char) code));
+    char[] letters = new char[numOfLetters];
+    int cursor = 0;
+    for (int i = 0; i < numOfIntervals; i++) {
+      for (int code = intervals[i][0]; code <= intervals[i][1]; code++) {
+        letters[cursor++] = (char) code;
       }
     }
 
-    return definedPickerBuilder.build();
+    return new RandomLetterPicker(letters);
   }
 }
@@ -2,12 +2,14 @@ package net.moznion.random.string;
 
 import lombok.Getter;
 
-import java.util.Random;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-
+/**
+ * Built-in alphabets. Pickers are immutable and take a source of randomness on each call, so a
+ * single instance is shared by all generators; see {@link #getInstance()}.
+ */
 @Getter
 class RandomLetterPickers {
+  private static final RandomLetterPickers INSTANCE = new RandomLetterPickers();
+
   private final RandomLetterPicker upperCase;
   private final RandomLetterPicker lowerCase;
   private final RandomLetterPicker digit;
@@ -20,29 +22,31 @@ class RandomLetterPickers {
   private final RandomLetterPicker notDigit;
   private final RandomLetterPicker space;
 
-  public RandomLetterPickers(Random random) {
+  /**
+   * Get the instance which is shared by all generators.
+   */
+  static RandomLetterPickers getInstance() {
+    return INSTANCE;
+  }
+
+  RandomLetterPickers() {
     upperCase = RandomLetterPicker.builder()
-        .setRandom(random)
         .addAllByEnum(UpperCaseLetter.class)
         .build();
 
     lowerCase = RandomLetterPicker.builder()
-        .setRandom(random)
         .addAllByEnum(LowerCaseLetter.class)
         .build();
 
     digit = RandomLetterPicker.builder()
-        .setRandom(random)
         .addAllByEnum(DigitLetter.class)
         .build();
 
     symbol = RandomLetterPicker.builder()
-        .setRandom(random)
         .addAllByEnum(SymbolLetter.class)
         .build();
 
     any = RandomLetterPicker.builder()
-        .setRandom(random)
         .addAllByEnum(UpperCaseLetter.class)
         .addAllByEnum(LowerCaseLetter.class)
         .addAllByEnum(DigitLetter.class)
@@ -50,7 +54,6 @@ class RandomLetterPickers {
         .build();
 
     salt = RandomLetterPicker.builder()
-        .setRandom(random)
         .addAllByEnum(UpperCaseLetter.class)
         .addAllByEnum(LowerCaseLetter.class)
         .addAllByEnum(DigitLetter.class)
@@ -58,15 +61,9 @@ class RandomLetterPickers {
         .add("/")
         .build();
 
-    binary = RandomLetterPicker.builder()
-        .setRandom(random)
-        .addAll(IntStream.range(0, 255)
-            .mapToObj(i -> Character.toString((char) i))
-            .collect(Collectors.toList()))
-        .build();
+    binary = RandomLetterPicker.constructByCodePointIntervals(new int[][] {{0, 254}}, 1);
 
     word = RandomLetterPicker.builder()
-        .setRandom(random)
         .addAllByEnum(UpperCaseLetter.class)
         .addAllByEnum(LowerCaseLetter.class)
         .addAllByEnum(DigitLetter.class)
@@ -74,20 +71,17 @@ class RandomLetterPickers {
         .build();
 
     notWord = RandomLetterPicker.builder()
-        .setRandom(random)
         .addAllByEnum(SymbolLetter.class)
         .remove("_")
         .build();
 
     notDigit = RandomLetterPicker.builder()
-        .setRandom(random)
         .addAllByEnum(UpperCaseLetter.class)
         .addAllByEnum(LowerCaseLetter.class)
         .addAllByEnum(SymbolLetter.class)
         .build();
 
     space = RandomLetterPicker.builder()
-        .setRandom(random)
         .add(" ")
         .add("\t")
         .build();
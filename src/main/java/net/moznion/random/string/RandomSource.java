@@ -0,0 +1,108 @@
+package net.moznion.random.string;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Source of randomness which is used by {@link RandomStringGenerator}.
+ *
+ * <p>
+ * Adapters for random number generators of JDK are available by factory methods of this interface.
+ * Please choose one according to your use case; e.g. {@link #of(SplittableRandom)} is fast but not
+ * secure, {@link #of(SecureRandom)} is secure and buffers bytes drawn from the engine.
+ *
+ * @author moznion
+ *
+ */
+public interface RandomSource {
+  /**
+   * Returns a uniformly distributed random number between 0 (inclusive) and bound (exclusive).
+   *
+   * @param bound Upper bound (exclusive). Must be positive.
+   * @return Random number
+   */
+  int nextInt(int bound);
+
+  /**
+   * Returns a uniformly distributed random long value.
+   *
+   * @return Random number
+   */
+  long nextLong();
+
+  /**
+   * Fills the bytes with random values.
+   *
+   * @param bytes Bytes to fill
+   */
+  void nextBytes(byte[] bytes);
+
+  /**
+   * Fills the array with uniformly distributed random numbers between 0 (inclusive) and bound
+   * (exclusive).
+   *
+   * @param dst Array to fill
+   * @param off Offset of the array
+   * @param len Number of random numbers to fill
+   * @param bound Upper bound (exclusive). Must be positive.
+   */
+  default void ints(int[] dst, int off, int len, int bound) {
+    final int end = off + len;
+    for (int i = off; i < end; i++) {
+      dst[i] = nextInt(bound);
+    }
+  }
+
+  /**
+   * Adapt an instance of Random.
+   *
+   * <p>
+   * Instances of SecureRandom are adapted as {@link #of(SecureRandom)} and an instance of
+   * ThreadLocalRandom is adapted as {@link #threadLocal()}.
+   *
+   * @param random Instance of Random
+   * @return Random source
+   */
+  static RandomSource of(Random random) {
+    if (random instanceof SecureRandom) {
+      return of((SecureRandom) random);
+    }
+    if (random instanceof ThreadLocalRandom) {
+      return threadLocal();
+    }
+    return new RandomSources.JdkRandomSource(random);
+  }
+
+  /**
+   * Adapt an instance of SplittableRandom. This is the fastest source among adapters but isn't
+   * thread-safe.
+   *
+   * @param random Instance of SplittableRandom
+   * @return Random source
+   */
+  static RandomSource of(SplittableRandom random) {
+    return new RandomSources.SplittableRandomSource(random);
+  }
+
+  /**
+   * Adapt an instance of SecureRandom. Random bytes are drawn from the engine in blocks and
+   * buffered, so that each random number doesn't cost a call of the engine.
+   *
+   * @param random Instance of SecureRandom
+   * @return Random source
+   */
+  static RandomSource of(SecureRandom random) {
+    return new RandomSources.BufferedSecureRandomSource(random);
+  }
+
+  /**
+   * Random source which draws from {@link ThreadLocalRandom} of the calling thread.
+   *
+   * @return Random source
+   */
+  static RandomSource threadLocal() {
+    return RandomSources.ThreadLocalRandomSource.INSTANCE;
+  }
+}
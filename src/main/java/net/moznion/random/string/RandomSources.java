@@ -0,0 +1,201 @@
+package net.moznion.random.string;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+class RandomSources {
+  private RandomSources() {
+  }
+
+  static void fillBytesByLongs(final RandomSource source, final byte[] bytes) {
+    int i = 0;
+    final int length = bytes.length;
+    while (i < length) {
+      long word = source.nextLong();
+      for (int n = Math.min(length - i, Long.BYTES); n-- > 0; word >>>= Byte.SIZE) {
+        bytes[i++] = (byte) word;
+      }
+    }
+  }
+
+  /**
+   * Return the source as is if it can be shared between threads, or wrap it so that each draw holds
+   * its lock. Sources which aren't known to be thread-safe (e.g. user-defined ones) are wrapped.
+   */
+  static RandomSource threadSafe(final RandomSource source) {
+    if (source instanceof JdkRandomSource
+        || source instanceof ThreadLocalRandomSource
+        || source instanceof BufferedSecureRandomSource
+        || source instanceof SynchronizedRandomSource) {
+      return source;
+    }
+    return new SynchronizedRandomSource(source);
+  }
+
+  static class JdkRandomSource implements RandomSource {
+    private final Random random;
+
+    JdkRandomSource(Random random) {
+      this.random = random;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+      return random.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+      return random.nextLong();
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+      random.nextBytes(bytes);
+    }
+  }
+
+  static class SplittableRandomSource implements RandomSource {
+    private final SplittableRandom random;
+
+    SplittableRandomSource(SplittableRandom random) {
+      this.random = random;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+      return random.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+      return random.nextLong();
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+      fillBytesByLongs(this, bytes);
+    }
+  }
+
+  static class ThreadLocalRandomSource implements RandomSource {
+    static final ThreadLocalRandomSource INSTANCE = new ThreadLocalRandomSource();
+
+    private ThreadLocalRandomSource() {
+    }
+
+    @Override
+    public int nextInt(int bound) {
+      return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+      return ThreadLocalRandom.current().nextLong();
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+      ThreadLocalRandom.current().nextBytes(bytes);
+    }
+  }
+
+  static class BufferedSecureRandomSource implements RandomSource {
+    private static final int BUFFER_SIZE = 512;
+
+    private final SecureRandom random;
+    private final byte[] buffer;
+    private int cursor;
+
+    BufferedSecureRandomSource(SecureRandom random) {
+      this.random = random;
+      buffer = new byte[BUFFER_SIZE];
+      cursor = BUFFER_SIZE;
+    }
+
+    @Override
+    public synchronized int nextInt(int bound) {
+      if (bound <= 0) {
+        throw new IllegalArgumentException("bound must be positive");
+      }
+
+      // same algorithm as java.util.Random#nextInt(int)
+      int r = next31();
+      int m = bound - 1;
+      if ((bound & m) == 0) {
+        return (int) ((bound * (long) r) >> 31);
+      }
+      for (int u = r; u - (r = u % bound) + m < 0; u = next31()) {
+        // reject to avoid modulo bias
+      }
+      return r;
+    }
+
+    @Override
+    public synchronized long nextLong() {
+      fillBufferIfNeeded(Long.BYTES);
+      long value = 0;
+      for (int i = 0; i < Long.BYTES; i++) {
+        value = (value << Byte.SIZE) | (buffer[cursor++] & 0xff);
+      }
+      return value;
+    }
+
+    @Override
+    public synchronized void nextBytes(byte[] bytes) {
+      if (bytes.length >= BUFFER_SIZE) {
+        random.nextBytes(bytes);
+        return;
+      }
+      fillBufferIfNeeded(bytes.length);
+      System.arraycopy(buffer, cursor, bytes, 0, bytes.length);
+      cursor += bytes.length;
+    }
+
+    private int next31() {
+      fillBufferIfNeeded(Integer.BYTES);
+      int value = 0;
+      for (int i = 0; i < Integer.BYTES; i++) {
+        value = (value << Byte.SIZE) | (buffer[cursor++] & 0xff);
+      }
+      return value >>> 1;
+    }
+
+    private void fillBufferIfNeeded(final int required) {
+      if (cursor + required > BUFFER_SIZE) {
+        random.nextBytes(buffer);
+        cursor = 0;
+      }
+    }
+  }
+
+  static class SynchronizedRandomSource implements RandomSource {
+    private final RandomSource source;
+
+    SynchronizedRandomSource(RandomSource source) {
+      this.source = source;
+    }
+
+    @Override
+    public synchronized int nextInt(int bound) {
+      return source.nextInt(bound);
+    }
+
+    @Override
+    public synchronized long nextLong() {
+      return source.nextLong();
+    }
+
+    @Override
+    public synchronized void nextBytes(byte[] bytes) {
+      source.nextBytes(bytes);
+    }
+
+    @Override
+    public synchronized void ints(int[] dst, int off, int len, int bound) {
+      source.ints(dst, off, len, bound);
+    }
+  }
+}
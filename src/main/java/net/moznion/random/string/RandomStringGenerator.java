@@ -1,30 +1,197 @@
 package net.moznion.random.string;
 
-import net.moznion.random.string.UserDefinedLetterPickerScanner.ScannedUserDefinedPicker;
-
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Generator of random string.
  * 
  * <p>
  * This class doesn't generate secure strings. So please use SecureRandom class if you want to use
- * with such a purpose.
+ * with such a purpose. Source of randomness can be chosen by {@link RandomSource} according to use
+ * case.
+ *
+ * <p>
+ * Instance of this class can be shared between threads; caches are concurrent and instance of
+ * Random is thread-safe. But sharing one Random between many threads causes contention
+ * on its seed. Please use {@link #concurrent()} if you want to share a generator between many
+ * threads.
  * 
  * @author moznion
  *
  */
 public class RandomStringGenerator {
-  private int numOfUpperLimit;
-  private final Map<String, RandomLetterPicker> userDefinedPickers;
-  private final Random random;
+  private volatile int numOfUpperLimit;
+  private final int regexCacheCapacity;
+  private final int patternCacheCapacity;
+  private final int characterClassCacheCapacity;
+  private volatile BoundedCache<String, CodePointRangePicker> userDefinedPickers;
+  private volatile BoundedCache<String, CompiledRegex> compiledRegexes;
+  private volatile BoundedCache<String, CompiledPattern> compiledPatterns;
+  private final RandomSource random;
   private final RandomLetterPickers pickers;
+  private final Map<String, RandomLetterPicker> namedPickers;
+  private final GenerationListener listener;
 
   private static final int DEFAULT_NUM_OF_UPPER_LIMIT = 10;
+  private static final int DEFAULT_REGEX_CACHE_CAPACITY = 256;
+  private static final int DEFAULT_PATTERN_CACHE_CAPACITY = 256;
+  private static final int DEFAULT_CHARACTER_CLASS_CACHE_CAPACITY = 1024;
+
+  /**
+   * Builder of {@link RandomStringGenerator}.
+   */
+  public static class Builder {
+    private RandomSource random;
+    private int numOfUpperLimit;
+    private int regexCacheCapacity;
+    private int patternCacheCapacity;
+    private int characterClassCacheCapacity;
+    private GenerationListener listener;
+    private final Map<String, RandomLetterPicker> namedPickers;
+
+    Builder() {
+      random = null;
+      numOfUpperLimit = DEFAULT_NUM_OF_UPPER_LIMIT;
+      regexCacheCapacity = DEFAULT_REGEX_CACHE_CAPACITY;
+      patternCacheCapacity = DEFAULT_PATTERN_CACHE_CAPACITY;
+      characterClassCacheCapacity = DEFAULT_CHARACTER_CLASS_CACHE_CAPACITY;
+      listener = null;
+      namedPickers = new HashMap<>();
+    }
+
+    /**
+     * Set an instance of Random (default: a default instance of Random).
+     *
+     * @param random Instance of Random
+     * @return This builder
+     */
+    public Builder setRandom(Random random) {
+      this.random = RandomSource.of(random);
+      return this;
+    }
+
+    /**
+     * Set a source of randomness (default: a default instance of Random).
+     *
+     * @param random Source of randomness
+     * @return This builder
+     */
+    public Builder setRandom(RandomSource random) {
+      this.random = random;
+      return this;
+    }
+
+    /**
+     * Set number of upper limit for regex quantifiers, for example {@code *}, {@code +} and etc
+     * (default: 10).
+     *
+     * @param numOfUpperLimit Number of upper limit for quantifiers
+     * @return This builder
+     */
+    public Builder setNumOfUpperLimit(int numOfUpperLimit) {
+      this.numOfUpperLimit = numOfUpperLimit;
+      return this;
+    }
+
+    /**
+     * Set maximum number of compiled regexes to cache (default: 256). Least recently used ones are
+     * evicted when the cache is full; 0 disables the cache.
+     *
+     * @param regexCacheCapacity Capacity of the cache of compiled regexes
+     * @return This builder
+     */
+    public Builder setRegexCacheCapacity(int regexCacheCapacity) {
+      this.regexCacheCapacity = regexCacheCapacity;
+      return this;
+    }
+
+    /**
+     * Set maximum number of compiled patterns to cache (default: 256). Least recently used ones are
+     * evicted when the cache is full; 0 disables the cache.
+     *
+     * @param patternCacheCapacity Capacity of the cache of compiled patterns
+     * @return This builder
+     */
+    public Builder setPatternCacheCapacity(int patternCacheCapacity) {
+      this.patternCacheCapacity = patternCacheCapacity;
+      return this;
+    }
+
+    /**
+     * Set maximum number of character classes (e.g. {@code [a-z]}) to cache (default: 1024). Least
+     * recently used ones are evicted when the cache is full; 0 disables the cache.
+     *
+     * @param characterClassCacheCapacity Capacity of the cache of character classes
+     * @return This builder
+     */
+    public Builder setCharacterClassCacheCapacity(int characterClassCacheCapacity) {
+      this.characterClassCacheCapacity = characterClassCacheCapacity;
+      return this;
+    }
+
+    /**
+     * Set a listener of compilation, generation and cache accesses (default: none). No events are
+     * fired and nothing is measured without a listener. See {@link GenerationMetrics} for a
+     * listener which aggregates events into metrics.
+     *
+     * @param listener Listener of events, or null
+     * @return This builder
+     */
+    public Builder setListener(GenerationListener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Add a distribution of letters by name, which can be used as {@code \p{name}} in regexes and
+     * {@code {name}} in patterns. A distribution which is added by the same name again replaces the
+     * previous one.
+     *
+     * @param name Name of the distribution, which consists of alphanumerics and "_"
+     * @param distribution Distribution of letters
+     * @return This builder
+     * @throws IllegalArgumentException If the name is empty or has other characters
+     */
+    public Builder addLetterDistribution(String name, LetterDistribution distribution) {
+      if (!isValidName(name)) {
+        throw new IllegalArgumentException("Detected invalid name of letter distribution: " + name);
+      }
+      namedPickers.put(name, distribution.getPicker());
+      return this;
+    }
+
+    /**
+     * Build a generator.
+     *
+     * @return Generator
+     */
+    public RandomStringGenerator build() {
+      return new RandomStringGenerator(this);
+    }
+  }
+
+  /**
+   * Get a builder of generator.
+   *
+   * @return Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
 
   /**
    * Instantiate generator with a default number of upper limit for regex quantifiers (for example
@@ -62,10 +229,162 @@ public class RandomStringGenerator {
    * @param numOfUpperLimit Number of upper limit for quantifiers
    */
   public RandomStringGenerator(Random random, int numOfUpperLimit) {
-    this.numOfUpperLimit = numOfUpperLimit;
-    this.random = random;
-    this.userDefinedPickers = new HashMap<>();
-    this.pickers = new RandomLetterPickers(this.random);
+    this(RandomSource.of(random), numOfUpperLimit);
+  }
+
+  /**
+   * Instantiate generator with a default number of upper limit for regex quantifiers (for example
+   * {@code *}, {@code +} and etc; default value is 10) and a source of randomness.
+   *
+   * @param random Source of randomness
+   */
+  public RandomStringGenerator(RandomSource random) {
+    this(random, DEFAULT_NUM_OF_UPPER_LIMIT);
+  }
+
+  /**
+   * Instantiate generator with a number of upper limit for regex quantifiers (for example {@code *}
+   * , {@code +} and etc) and a source of randomness.
+   *
+   * @param random Source of randomness
+   * @param numOfUpperLimit Number of upper limit for quantifiers
+   */
+  public RandomStringGenerator(RandomSource random, int numOfUpperLimit) {
+    this(builder().setRandom(random).setNumOfUpperLimit(numOfUpperLimit));
+  }
+
+  private RandomStringGenerator(Builder b) {
+    this.numOfUpperLimit = b.numOfUpperLimit;
+    this.random = b.random == null ? RandomSource.of(new Random()) : b.random;
+    this.listener = b.listener;
+    this.regexCacheCapacity = requireNonNegativeCapacity(b.regexCacheCapacity);
+    this.patternCacheCapacity = requireNonNegativeCapacity(b.patternCacheCapacity);
+    this.characterClassCacheCapacity = requireNonNegativeCapacity(b.characterClassCacheCapacity);
+    this.pickers = RandomLetterPickers.getInstance();
+    this.namedPickers = b.namedPickers.isEmpty()
+        ? Collections.emptyMap()
+        : Collections.unmodifiableMap(new HashMap<>(b.namedPickers));
+  }
+
+  private static boolean isValidName(final String name) {
+    if (name.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int requireNonNegativeCapacity(final int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+    }
+    return capacity;
+  }
+
+  /**
+   * Caches are created on first use, so that a short-lived generator (e.g. with a seeded Random
+   * per request) costs only a few fields to construct.
+   */
+  private BoundedCache<String, CompiledRegex> compiledRegexes() {
+    BoundedCache<String, CompiledRegex> cache = compiledRegexes;
+    if (cache == null) {
+      synchronized (this) {
+        cache = compiledRegexes;
+        if (cache == null) {
+          cache = new BoundedCache<>(regexCacheCapacity,
+              cacheListenerOf(listener, GenerationListener.CacheType.REGEX));
+          compiledRegexes = cache;
+        }
+      }
+    }
+    return cache;
+  }
+
+  private BoundedCache<String, CompiledPattern> compiledPatterns() {
+    BoundedCache<String, CompiledPattern> cache = compiledPatterns;
+    if (cache == null) {
+      synchronized (this) {
+        cache = compiledPatterns;
+        if (cache == null) {
+          cache = new BoundedCache<>(patternCacheCapacity,
+              cacheListenerOf(listener, GenerationListener.CacheType.PATTERN));
+          compiledPatterns = cache;
+        }
+      }
+    }
+    return cache;
+  }
+
+  private BoundedCache<String, CodePointRangePicker> userDefinedPickers() {
+    BoundedCache<String, CodePointRangePicker> cache = userDefinedPickers;
+    if (cache == null) {
+      synchronized (this) {
+        cache = userDefinedPickers;
+        if (cache == null) {
+          cache = new BoundedCache<>(characterClassCacheCapacity,
+              cacheListenerOf(listener, GenerationListener.CacheType.CHARACTER_CLASS));
+          userDefinedPickers = cache;
+        }
+      }
+    }
+    return cache;
+  }
+
+  private static BoundedCache.Listener cacheListenerOf(final GenerationListener listener,
+      final GenerationListener.CacheType cacheType) {
+    if (listener == null) {
+      return null;
+    }
+    return new BoundedCache.Listener() {
+      @Override
+      public void onHit() {
+        listener.onCacheHit(cacheType);
+      }
+
+      @Override
+      public void onMiss() {
+        listener.onCacheMiss(cacheType);
+      }
+
+      @Override
+      public void onEviction() {
+        listener.onCacheEviction(cacheType);
+      }
+    };
+  }
+
+  /**
+   * Instantiate generator for sharing between many threads with a default number of upper limit
+   * for regex quantifiers (for example {@code *}, {@code +} and etc; default value is 10).
+   *
+   * <p>
+   * Generator which is instantiated by this method draws random numbers from
+   * {@link ThreadLocalRandom} of the calling thread, so threads don't contend on a shared seed.
+   *
+   * @return Generator for sharing between threads
+   */
+  public static RandomStringGenerator concurrent() {
+    return concurrent(DEFAULT_NUM_OF_UPPER_LIMIT);
+  }
+
+  /**
+   * Instantiate generator for sharing between many threads with a number of upper limit for regex
+   * quantifiers (for example {@code *}, {@code +} and etc).
+   *
+   * <p>
+   * Generator which is instantiated by this method draws random numbers from
+   * {@link ThreadLocalRandom} of the calling thread, so threads don't contend on a shared seed.
+   *
+   * @param numOfUpperLimit Number of upper limit for quantifiers
+   * @return Generator for sharing between threads
+   */
+  public static RandomStringGenerator concurrent(int numOfUpperLimit) {
+    return new RandomStringGenerator(RandomSource.threadLocal(), numOfUpperLimit);
   }
 
   /**
@@ -81,6 +400,9 @@ public class RandomStringGenerator {
    * <li>{@code .} : Any of the above</li>
    * <li>{@code s} : A "salt" character {@code [A-Za-z0-9./]}</li>
    * <li>{@code b} : An ASCIII character which has code from 0 to 255</li>
+   * <li>{@code {name}} : A letter of the distribution which is added by
+   * {@link Builder#addLetterDistribution(String, LetterDistribution)}; {@code \p} without a
+   * name is a literal {@code p}</li>
    * </ul>
    * 
    * <p>
@@ -99,35 +421,187 @@ public class RandomStringGenerator {
    * @return Random string which is generated according to pattern
    */
   public String generateFromPattern(final String pattern) {
-    return Arrays.stream(pattern.split("")).map(patternCharacter -> {
+    return compilePattern(pattern).generate();
+  }
+
+  /**
+   * Generate random string from pattern and append it to the target.
+   *
+   * <p>
+   * Available pattern characters are the same as {@link #generateFromPattern(String)}. This method
+   * is useful to reuse a buffer for generation.
+   *
+   * @param pattern Pattern string
+   * @param target Buffer to append generated characters
+   */
+  public void generateFromPattern(final String pattern, final StringBuilder target) {
+    compilePattern(pattern).generate(target);
+  }
+
+  /**
+   * Generate random string from pattern and put it to the target.
+   *
+   * <p>
+   * Available pattern characters are the same as {@link #generateFromPattern(String)}. This method
+   * is useful to reuse a buffer for generation.
+   *
+   * @param pattern Pattern string
+   * @param target Buffer to put generated characters
+   */
+  public void generateFromPattern(final String pattern, final CharBuffer target) {
+    compilePattern(pattern).generate(target);
+  }
+
+  /**
+   * Generate random bytes from pattern.
+   *
+   * <p>
+   * Available pattern characters are the same as {@link #generateFromPattern(String)}. Each
+   * character becomes a single byte; all of them are ASCII except for {@code b}, which yields a raw
+   * byte. This is faster than encoding the result of {@link #generateFromPattern(String)}.
+   *
+   * @param pattern Pattern string
+   * @return Random bytes which are generated according to pattern
+   */
+  public byte[] generateBytesFromPattern(final String pattern) {
+    return compilePattern(pattern).generateBytes();
+  }
+
+  /**
+   * Generate random bytes from pattern and put them to the target.
+   *
+   * <p>
+   * See also {@link #generateBytesFromPattern(String)}.
+   *
+   * @param pattern Pattern string
+   * @param target Buffer to put generated bytes
+   * @throws BufferOverflowException If there is insufficient space in the target
+   */
+  public void generateBytesFromPattern(final String pattern, final ByteBuffer target) {
+    compilePattern(pattern).generateBytes(target);
+  }
+
+  /**
+   * Generate random strings lazily from pattern.
+   *
+   * <p>
+   * The pattern is parsed only once for all strings. Available pattern characters are the same as
+   * {@link #generateFromPattern(String)}.
+   *
+   * @param pattern Pattern string
+   * @param count Number of strings to generate
+   * @return Stream of random strings
+   */
+  public Stream<String> generateManyFromPattern(final String pattern, final long count) {
+    return compilePattern(pattern).generateMany(count);
+  }
+
+  /**
+   * Generate random strings from pattern and fill them into dst.
+   *
+   * <p>
+   * The pattern is parsed only once for all strings. Available pattern characters are the same as
+   * {@link #generateFromPattern(String)}.
+   *
+   * @param pattern Pattern string
+   * @param dst Array to fill random strings
+   */
+  public void generateManyFromPattern(final String pattern, final String[] dst) {
+    compilePattern(pattern).generateMany(dst);
+  }
+
+  /**
+   * Generate random strings from pattern and pass each of them to the consumer.
+   *
+   * <p>
+   * The pattern is parsed only once and a single buffer is reused for all strings, so the consumer
+   * must not retain the passed {@link CharSequence}. Available pattern characters are the same as
+   * {@link #generateFromPattern(String)}.
+   *
+   * @param pattern Pattern string
+   * @param count Number of strings to generate
+   * @param consumer Consumer of random strings
+   */
+  public void forEachFromPattern(final String pattern, final long count,
+      final Consumer<CharSequence> consumer) {
+    compilePattern(pattern).forEach(count, consumer);
+  }
+
+  /**
+   * Compile pattern to generate random strings repeatedly.
+   *
+   * <p>
+   * Available pattern characters are the same as {@link #generateFromPattern(String)}.
+   *
+   * <p>
+   * Compiled patterns are cached in this generator up to the capacity which is configured by
+   * {@link Builder#setPatternCacheCapacity(int)}, so compiling the same pattern again is cheap.
+   *
+   * @param pattern Pattern string
+   * @return Compiled pattern
+   */
+  public CompiledPattern compilePattern(final String pattern) {
+    return compiledPatterns().get(pattern, this::compilePatternWithoutCache);
+  }
+
+  private CompiledPattern compilePatternWithoutCache(final String pattern) {
+    final long startNanos = listener == null ? 0 : System.nanoTime();
+    final int length = pattern.length();
+    RandomLetterPicker[] resolved = new RandomLetterPicker[length];
+    int numOfResolved = 0;
+    for (int i = 0; i < length; i++) {
+      char patternCharacter = pattern.charAt(i);
       RandomLetterPicker picker;
       switch (patternCharacter) {
-        case "c":
+        case '{':
+          final int end = pattern.indexOf('}', i);
+          if (end < 0) {
+            throw new RuntimeException("Detected unclosed letter distribution: " + pattern);
+          }
+          picker = namedPickerOf(pattern.substring(i + 1, end));
+          i = end;
+          break;
+        case 'c':
           picker = pickers.getLowerCase();
           break;
-        case "C":
+        case 'C':
           picker = pickers.getUpperCase();
           break;
-        case "n":
+        case 'n':
           picker = pickers.getDigit();
           break;
-        case "!":
+        case '!':
           picker = pickers.getSymbol();
           break;
-        case ".":
+        case '.':
           picker = pickers.getAny();
           break;
-        case "s":
+        case 's':
           picker = pickers.getSalt();
           break;
-        case "b":
+        case 'b':
           picker = pickers.getBinary();
           break;
         default:
           throw new RuntimeException("Detected invalid pattern character: " + patternCharacter);
       }
-      return picker.pickRandomLetter();
-    }).collect(Collectors.joining());
+      resolved[numOfResolved++] = picker;
+    }
+    if (numOfResolved < length) {
+      resolved = Arrays.copyOf(resolved, numOfResolved);
+    }
+    if (listener != null) {
+      listener.onCompile(pattern, System.nanoTime() - startNanos);
+    }
+    return new CompiledPattern(pattern, resolved, random, listener);
+  }
+
+  private RandomLetterPicker namedPickerOf(final String name) {
+    RandomLetterPicker picker = namedPickers.get(name);
+    if (picker == null) {
+      throw new RuntimeException("Detected unknown letter distribution: " + name);
+    }
+    return picker;
   }
 
   /**
@@ -143,11 +617,18 @@ public class RandomStringGenerator {
    * <li>{@code \s} : Whitespace characters {@code [ \t]}</li>
    * <li>{@code \S} : Printable characters</li>
    * <li>{@code .} : Printable characters</li>
-   * <li>{@code []} : Character classes (Example of usage {@code [a-zA-Z]})</li>
+   * <li>{@code []} : Character classes (Example of usage {@code [a-zA-Z]}); non-ASCII characters
+   * and ranges of any size are allowed, and supplementary characters are counted as one character
+   * by quantifiers</li>
    * <li><code>{}</code>: Repetition</li>
    * <li>{@code *} : Same as {0,}</li>
    * <li>{@code ?} : Same as {0,1}</li>
    * <li>{@code +} : Same as {1,}</li>
+   * <li>{@code ()} : Group, which can be repeated by the above quantifiers; {@code (?:)} is the
+   * same</li>
+   * <li>{@code |} : Alternation, which chooses one of alternatives uniformly</li>
+   * <li>{@code \p{name}} : A letter of the distribution which is added by
+   * {@link Builder#addLetterDistribution(String, LetterDistribution)}</li>
    * </ul>
    * 
    * <p>
@@ -166,108 +647,425 @@ public class RandomStringGenerator {
    * @return Random String
    */
   public String generateByRegex(final String regex) {
-    String expanded = new RegexNormalizer(numOfUpperLimit, random).normalizeQuantifiers(regex);
+    return compile(regex).generate();
+  }
 
-    final String[] regexCharacters = expanded.split("");
-    final int length = regexCharacters.length;
+  /**
+   * Generate random string of exactly the length from regular expression.
+   *
+   * <p>
+   * Available meta characters are the same as {@link #generateByRegex(String)}. The length is
+   * counted in code points; see also {@link CompiledRegex#generate(int)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param length Length of the string in code points
+   * @return Random String
+   * @throws RuntimeException If the regex can't generate a string of the length
+   */
+  public String generateByRegex(final String regex, final int length) {
+    return compile(regex).generate(length);
+  }
 
-    StringBuilder sb = new StringBuilder();
-    for (int i = 0; i < length; i++) {
-      String character = regexCharacters[i];
-      RandomLetterPicker picker = null;
-      String candidateCharacter = null;
-      switch (character) {
-        case "\\":
-          try {
-            character = regexCharacters[++i];
-          } catch (ArrayIndexOutOfBoundsException e) {
-            throw new RuntimeException("Detected invalid escape character");
-          }
+  /**
+   * Generate random string whose length follows the distribution from regular expression.
+   *
+   * <p>
+   * Available meta characters are the same as {@link #generateByRegex(String)}. Lengths are
+   * counted in code points; see also {@link CompiledRegex#generate(LengthDistribution)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param lengthDistribution Distribution of length in code points
+   * @return Random String
+   * @throws RuntimeException If the regex can't generate a string of the sampled length
+   */
+  public String generateByRegex(final String regex, final LengthDistribution lengthDistribution) {
+    return compile(regex).generate(lengthDistribution);
+  }
 
-          switch (character) {
-            case "w":
-              picker = pickers.getWord();
-              break;
-            case "d":
-              picker = pickers.getDigit();
-              break;
-            case "W":
-              picker = pickers.getNotWord();
-              break;
-            case "D":
-              picker = pickers.getNotDigit();
-              break;
-            case "s":
-              picker = pickers.getSpace();
-              break;
-            case "S":
-              picker = pickers.getAny();
-              break;
-            default:
-              candidateCharacter = character;
-          }
-          break;
-        case "[":
-          try {
-            ScannedUserDefinedPicker scannedUserDefinedPicker =
-                UserDefinedLetterPickerScanner.scan(regexCharacters, i);
-            String key = scannedUserDefinedPicker.getKey();
-            i = scannedUserDefinedPicker.getCursor();
-
-            if (userDefinedPickers.get(key) == null) {
-              RandomLetterPicker userDefinedPicker = RandomLetterPicker
-                  .constructByCharacterRange(scannedUserDefinedPicker.getBounds());
-              userDefinedPickers.put(key, userDefinedPicker);
-            }
-
-            picker = userDefinedPickers.get(key);
-          } catch (ArrayIndexOutOfBoundsException e) {
-            throw new RuntimeException("Occurs parsing error");
-          }
-          break;
-        case ".":
-          picker = pickers.getAny();
-          break;
-        default:
-          candidateCharacter = character;
-      }
+  /**
+   * Generate random string from regular expression as ASCII bytes.
+   *
+   * <p>
+   * Available meta characters are the same as {@link #generateByRegex(String)}. Bytes are written
+   * directly from the letter tables, so this is faster than encoding the result of
+   * {@link #generateByRegex(String)}. Use {@link #generateInto(String, ByteBuffer)} to write into a
+   * buffer of the caller.
+   *
+   * @param regex Pattern based on regular expression
+   * @return Random bytes
+   * @throws RuntimeException If the regex can generate non-ASCII characters
+   */
+  public byte[] generateBytesByRegex(final String regex) {
+    return compile(regex).generateBytes();
+  }
 
-      int repetitionNum = 1;
-      if (i + 1 < length) {
-        String nextCharacter = regexCharacters[i + 1];
-        if (nextCharacter.equals("{")) {
-          int j = i + 1;
-          StringBuilder sbForQuantifier = new StringBuilder();
-          try {
-            while (!(nextCharacter = regexCharacters[++j]).equals("}")) {
-              sbForQuantifier.append(nextCharacter);
-            }
-            try {
-              repetitionNum = Integer.parseInt(sbForQuantifier.toString(), 10);
-              i = j;
-            } catch (RuntimeException e) {
-              // do nothing
-            }
-          } catch (ArrayIndexOutOfBoundsException e) {
-            // do nothing
-          }
-        }
-      }
+  /**
+   * Generate random string from regular expression and write it to the writer.
+   *
+   * <p>
+   * This is for huge strings; characters are written in fixed-size chunks as they are generated
+   * and the whole string is never held in memory. Available meta characters are the same as
+   * {@link #generateByRegex(String)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param writer Destination of random string
+   * @throws IOException If the writer throws it
+   */
+  public void generateTo(final String regex, final Writer writer) throws IOException {
+    compile(regex).generateTo(writer);
+  }
 
-      if (picker != null) {
-        for (int j = 0; j < repetitionNum; j++) {
-          sb.append(picker.pickRandomLetter());
-        }
-      } else if (candidateCharacter != null) {
-        for (int j = 0; j < repetitionNum; j++) {
-          sb.append(candidateCharacter);
-        }
-      } else {
-        throw new RuntimeException("Occurs parsing error");
-      }
+  /**
+   * Generate random string from regular expression and write it to the channel as ASCII bytes.
+   *
+   * <p>
+   * This is for huge strings as well as {@link #generateTo(String, Writer)}. Available meta
+   * characters are the same as {@link #generateByRegex(String)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param channel Destination of random string
+   * @throws IOException If the channel throws it
+   * @throws RuntimeException If the regex can generate non-ASCII characters
+   */
+  public void generateTo(final String regex, final WritableByteChannel channel)
+      throws IOException {
+    compile(regex).generateTo(channel);
+  }
+
+  /**
+   * Generate random string from regular expression and put it to the buffer as ASCII bytes.
+   *
+   * <p>
+   * Available meta characters are the same as {@link #generateByRegex(String)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param buffer Destination of random string
+   * @throws BufferOverflowException If there is insufficient space in the buffer
+   * @throws RuntimeException If the regex can generate non-ASCII characters
+   */
+  public void generateInto(final String regex, final ByteBuffer buffer) {
+    compile(regex).generateInto(buffer);
+  }
+
+  /**
+   * Generate random strings lazily from regular expression.
+   *
+   * <p>
+   * The regex is parsed only once for all strings. Available meta characters are the same as
+   * {@link #generateByRegex(String)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param count Number of strings to generate
+   * @return Stream of random strings
+   */
+  public Stream<String> generateManyByRegex(final String regex, final long count) {
+    return compile(regex).generateMany(count);
+  }
+
+  /**
+   * Generate random strings from regular expression and fill them into dst.
+   *
+   * <p>
+   * The regex is parsed only once for all strings. Available meta characters are the same as
+   * {@link #generateByRegex(String)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param dst Array to fill random strings
+   */
+  public void generateManyByRegex(final String regex, final String[] dst) {
+    compile(regex).generateMany(dst);
+  }
+
+  /**
+   * Generate random strings from regular expression and pass each of them to the consumer.
+   *
+   * <p>
+   * The regex is parsed only once and a single buffer is reused for all strings, so the consumer
+   * must not retain the passed {@link CharSequence}. Available meta characters are the same as
+   * {@link #generateByRegex(String)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param count Number of strings to generate
+   * @param consumer Consumer of random strings
+   */
+  public void forEachByRegex(final String regex, final long count,
+      final Consumer<CharSequence> consumer) {
+    compile(regex).forEach(count, consumer);
+  }
+
+  /**
+   * Compile regular expression to generate random strings repeatedly.
+   *
+   * <p>
+   * The regex is parsed only once, so this is faster than calling
+   * {@link #generateByRegex(String)} many times with the same regex. Available meta characters are
+   * the same as {@link #generateByRegex(String)}.
+   *
+   * <p>
+   * e.g.
+   *
+   * <pre>
+   * <code>
+   * RandomStringGenerator generator = new RandomStringGenerator();
+   * CompiledRegex compiled = generator.compile("\\w+\\d*\\s[0-9]{0,3}X");
+   *
+   * // generates random strings (e.g. "a5B123 18X")
+   * String randomString = compiled.generate();
+   * String anotherRandomString = compiled.generate();
+   * </code>
+   * </pre>
+   *
+   * <p>
+   * Number of upper limit for quantifiers is fixed at the time of compilation. Compiled regexes are
+   * cached in this generator up to the capacity which is configured by
+   * {@link Builder#setRegexCacheCapacity(int)}, so compiling the same regex again is cheap.
+   *
+   * @param regex Pattern based on regular expression
+   * @return Compiled regex
+   */
+  public CompiledRegex compile(final String regex) {
+    final int numOfUpperLimit = this.numOfUpperLimit;
+    CompiledRegex compiled =
+        compiledRegexes().get(regex, key -> compileWithoutCache(key, numOfUpperLimit));
+    if (compiled.getNumOfUpperLimit() != numOfUpperLimit) {
+      // compiled before the number of upper limit was changed
+      compiled = compileWithoutCache(regex, numOfUpperLimit);
+      compiledRegexes().put(regex, compiled);
+    }
+    return compiled;
+  }
+
+  /**
+   * Compute bounds of length of strings which are generated from regular expression.
+   *
+   * <p>
+   * Quantifiers are limited by number of upper limit of this generator, e.g. {@code \d{2}x*}
+   * gives min 2, max (2 + number of upper limit) and expected (2 + number of upper limit / 2).
+   * Lengths are counted in code points, as well as quantifiers count them.
+   *
+   * @param regex Pattern based on regular expression
+   * @return Bounds of length
+   */
+  public LengthBounds lengthBounds(final String regex) {
+    return compile(regex).getLengthBounds();
+  }
+
+  /**
+   * Count all strings which can be generated from finite regular expression.
+   *
+   * <p>
+   * Available meta characters are the same as {@link #generateByRegex(String)} except for
+   * quantifiers without upper bound. See also {@link CompiledRegex#count()}.
+   *
+   * @param regex Pattern based on regular expression
+   * @return Number of strings
+   * @throws RuntimeException If the regex is infinite
+   */
+  public BigInteger count(final String regex) {
+    return compile(regex).count();
+  }
+
+  /**
+   * Get the string at the index among all strings which can be generated from finite regular
+   * expression. See also {@link CompiledRegex#nth(BigInteger)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param index Index between 0 (inclusive) and {@link #count(String)} (exclusive)
+   * @return String at the index
+   * @throws RuntimeException If the regex is infinite
+   * @throws IndexOutOfBoundsException If the index is out of range
+   */
+  public String nth(final String regex, final BigInteger index) {
+    return compile(regex).nth(index);
+  }
+
+  /**
+   * Get the string at the index among all strings which can be generated from finite regular
+   * expression. See also {@link CompiledRegex#nth(BigInteger)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param index Index between 0 (inclusive) and {@link #count(String)} (exclusive)
+   * @return String at the index
+   * @throws RuntimeException If the regex is infinite
+   * @throws IndexOutOfBoundsException If the index is out of range
+   */
+  public String nth(final String regex, final long index) {
+    return compile(regex).nth(index);
+  }
+
+  /**
+   * Enumerate all strings which can be generated from finite regular expression lazily. See also
+   * {@link CompiledRegex#enumerate()}.
+   *
+   * @param regex Pattern based on regular expression
+   * @return Stream of all strings
+   * @throws RuntimeException If the regex is infinite
+   */
+  public Stream<String> enumerate(final String regex) {
+    return compile(regex).enumerate();
+  }
+
+  /**
+   * Create a generator which never returns the same string twice from regular expression.
+   *
+   * <p>
+   * Available meta characters are the same as {@link #generateByRegex(String)}. See
+   * {@link UniqueRandomStringGenerator} about how uniqueness is tracked. Up to 100 retries are
+   * made for a string before the output space is regarded as exhausted.
+   *
+   * @param regex Pattern based on regular expression
+   * @return Generator of unique strings
+   */
+  public UniqueRandomStringGenerator uniqueByRegex(final String regex) {
+    return uniqueByRegex(regex, UniqueRandomStringGenerator.DEFAULT_MAX_RETRIES);
+  }
+
+  /**
+   * Create a generator which never returns the same string twice from regular expression.
+   *
+   * <p>
+   * See also {@link #uniqueByRegex(String)}.
+   *
+   * @param regex Pattern based on regular expression
+   * @param maxRetries Maximum number of retries for a string
+   * @return Generator of unique strings
+   */
+  public UniqueRandomStringGenerator uniqueByRegex(final String regex, final int maxRetries) {
+    final CompiledRegex compiled = compile(regex);
+    return new UniqueRandomStringGenerator(regex, compiled::generate,
+        compiled.createKeyEncoder(), maxRetries);
+  }
+
+  /**
+   * Create a generator which never returns the same string twice from pattern.
+   *
+   * <p>
+   * Available pattern characters are the same as {@link #generateFromPattern(String)}. See
+   * {@link UniqueRandomStringGenerator} about how uniqueness is tracked. Up to 100 retries are
+   * made for a string before the output space is regarded as exhausted.
+   *
+   * @param pattern Pattern string
+   * @return Generator of unique strings
+   */
+  public UniqueRandomStringGenerator uniqueFromPattern(final String pattern) {
+    return uniqueFromPattern(pattern, UniqueRandomStringGenerator.DEFAULT_MAX_RETRIES);
+  }
+
+  /**
+   * Create a generator which never returns the same string twice from pattern.
+   *
+   * <p>
+   * See also {@link #uniqueFromPattern(String)}.
+   *
+   * @param pattern Pattern string
+   * @param maxRetries Maximum number of retries for a string
+   * @return Generator of unique strings
+   */
+  public UniqueRandomStringGenerator uniqueFromPattern(final String pattern,
+      final int maxRetries) {
+    final CompiledPattern compiled = compilePattern(pattern);
+    return new UniqueRandomStringGenerator(pattern, compiled::generate,
+        compiled.createKeyEncoder(), maxRetries);
+  }
+
+  /**
+   * Create a sequence of unique random-looking strings from regular expression, with a key which
+   * is drawn from the source of randomness of this generator.
+   *
+   * <p>
+   * See also {@link #sequenceByRegex(String, long)}.
+   *
+   * @param regex Pattern based on regular expression which generates strings of fixed length
+   * @return Sequence of unique strings
+   */
+  public UniqueSequence sequenceByRegex(final String regex) {
+    return sequenceByRegex(regex, random.nextLong());
+  }
+
+  /**
+   * Create a sequence of unique random-looking strings from regular expression.
+   *
+   * <p>
+   * Unlike {@link #uniqueByRegex(String)}, this doesn't remember generated strings; see
+   * {@link UniqueSequence}. The regex must generate strings of fixed length (e.g.
+   * {@code [A-Z0-9]{10}}) and the number of them must be up to 2^62.
+   *
+   * @param regex Pattern based on regular expression which generates strings of fixed length
+   * @param key Key of the permutation; the same key gives the same sequence
+   * @return Sequence of unique strings
+   * @throws RuntimeException If the regex doesn't satisfy the conditions
+   */
+  public UniqueSequence sequenceByRegex(final String regex, final long key) {
+    return new UniqueSequence(regex, compile(regex).createMixedRadixEncoder(), key);
+  }
+
+  /**
+   * Create a sequence of unique random-looking strings from pattern, with a key which is drawn from
+   * the source of randomness of this generator.
+   *
+   * <p>
+   * See also {@link #sequenceFromPattern(String, long)}.
+   *
+   * @param pattern Pattern string
+   * @return Sequence of unique strings
+   */
+  public UniqueSequence sequenceFromPattern(final String pattern) {
+    return sequenceFromPattern(pattern, random.nextLong());
+  }
+
+  /**
+   * Create a sequence of unique random-looking strings from pattern.
+   *
+   * <p>
+   * Unlike {@link #uniqueFromPattern(String)}, this doesn't remember generated strings; see
+   * {@link UniqueSequence}. The number of strings of the pattern must be up to 2^62.
+   *
+   * @param pattern Pattern string
+   * @param key Key of the permutation; the same key gives the same sequence
+   * @return Sequence of unique strings
+   * @throws RuntimeException If the pattern doesn't satisfy the condition
+   */
+  public UniqueSequence sequenceFromPattern(final String pattern, final long key) {
+    return new UniqueSequence(pattern, compilePattern(pattern).createMixedRadixEncoder(), key);
+  }
+
+  private CompiledRegex compileWithoutCache(final String regex, final int numOfUpperLimit) {
+    final long startNanos = listener == null ? 0 : System.nanoTime();
+    RegexCompiler compiler =
+        new RegexCompiler(pickers, namedPickers, userDefinedPickers(), numOfUpperLimit);
+    CompiledRegex compiled =
+        new CompiledRegex(regex, compiler.compile(regex), random, numOfUpperLimit, listener);
+    if (listener != null) {
+      listener.onCompile(regex, System.nanoTime() - startNanos);
     }
+    return compiled;
+  }
+
+  /**
+   * Get statistics of the cache of compiled regexes.
+   *
+   * @return Statistics of the cache
+   */
+  public CacheStats getRegexCacheStats() {
+    return compiledRegexes().stats();
+  }
+
+  /**
+   * Get statistics of the cache of compiled patterns.
+   *
+   * @return Statistics of the cache
+   */
+  public CacheStats getPatternCacheStats() {
+    return compiledPatterns().stats();
+  }
 
-    return sb.toString();
+  /**
+   * Get statistics of the cache of character classes (e.g. {@code [a-z]}).
+   *
+   * @return Statistics of the cache
+   */
+  public CacheStats getCharacterClassCacheStats() {
+    return userDefinedPickers().stats();
   }
 
   /**
@@ -0,0 +1,272 @@
+package net.moznion.random.string;
+
+import net.moznion.random.string.UserDefinedLetterPickerScanner.ScannedUserDefinedPicker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single pass compiler of regex. Each character of the regex is visited only once, so compilation
+ * takes linear time to the length of the regex; groups are compiled recursively in the same pass.
+ * Instance of this class isn't thread-safe.
+ */
+class RegexCompiler {
+  private final RandomLetterPickers pickers;
+  private final Map<String, RandomLetterPicker> namedPickers;
+  private final BoundedCache<String, CodePointRangePicker> userDefinedPickers;
+  private final int numOfUpperLimit;
+
+  private String regex;
+  private int length;
+  private int cursor;
+  private int quantifierMin;
+  private int quantifierMax;
+  private boolean quantifierUnbounded;
+
+  public RegexCompiler(RandomLetterPickers pickers, Map<String, RandomLetterPicker> namedPickers,
+      BoundedCache<String, CodePointRangePicker> userDefinedPickers, int numOfUpperLimit) {
+    this.pickers = pickers;
+    this.namedPickers = namedPickers;
+    this.userDefinedPickers = userDefinedPickers;
+    this.numOfUpperLimit = numOfUpperLimit;
+  }
+
+  public List<RegexNode> compile(final String regex) {
+    this.regex = regex;
+    length = regex.length();
+    cursor = 0;
+
+    RegexNode[][] alternatives = compileAlternatives();
+    if (cursor < length) {
+      throw new RuntimeException("Detected unmatched parenthesis: " + regex);
+    }
+    if (alternatives.length == 1) {
+      return new ArrayList<>(Arrays.asList(alternatives[0]));
+    }
+    List<RegexNode> nodes = new ArrayList<>();
+    nodes.add(new RegexNode.Group(regex, alternatives, 1, 1, false));
+    return nodes;
+  }
+
+  /**
+   * Compile alternatives which are separated by {@code |} until {@code )} or the end of regex.
+   * The cursor is left at {@code )}.
+   */
+  private RegexNode[][] compileAlternatives() {
+    List<RegexNode[]> alternatives = new ArrayList<>();
+    alternatives.add(compileSequence());
+    while (cursor < length && regex.charAt(cursor) == '|') {
+      cursor++;
+      alternatives.add(compileSequence());
+    }
+    return alternatives.toArray(new RegexNode[alternatives.size()][]);
+  }
+
+  private RegexNode[] compileSequence() {
+    List<RegexNode> nodes = new ArrayList<>();
+    StringBuilder literals = new StringBuilder();
+    while (cursor < length) {
+      final int begin = cursor;
+      char character = regex.charAt(cursor++);
+      RandomLetterPicker picker = null;
+      CodePointRangePicker rangePicker = null;
+      RegexNode[][] group = null;
+      switch (character) {
+        case '|':
+        case ')':
+          cursor--;
+          flushLiterals(nodes, literals);
+          return nodes.toArray(new RegexNode[nodes.size()]);
+        case '(':
+          if (regex.startsWith("?:", cursor)) {
+            cursor += 2; // non-capturing group is the same as capturing one here
+          }
+          group = compileAlternatives();
+          if (cursor >= length) {
+            throw new RuntimeException("Detected unclosed group: " + regex);
+          }
+          cursor++; // skip ")"
+          break;
+        case '\\':
+          if (cursor >= length) {
+            throw new RuntimeException("Detected invalid escape character");
+          }
+          character = regex.charAt(cursor++);
+          picker = character == 'p' ? scanNamedPicker() : pickEscapedPicker(character);
+          break;
+        case '[':
+          try {
+            ScannedUserDefinedPicker scannedUserDefinedPicker =
+                UserDefinedLetterPickerScanner.scan(regex, cursor - 1);
+            cursor = scannedUserDefinedPicker.getCursor() + 1;
+            rangePicker = userDefinedPickers.get(scannedUserDefinedPicker.getKey(),
+                key -> new CodePointRangePicker(scannedUserDefinedPicker.getRanges()));
+            picker = rangePicker.getLetterPicker();
+          } catch (IndexOutOfBoundsException e) {
+            throw new RuntimeException("Occurs parsing error");
+          }
+          break;
+        case '.':
+          picker = pickers.getAny();
+          break;
+        default:
+          // literal character
+      }
+
+      int min = 1;
+      int max = 1;
+      boolean unbounded = false;
+      boolean quantified = scanQuantifier();
+      if (quantified) {
+        min = quantifierMin;
+        max = quantifierMax;
+        unbounded = quantifierUnbounded;
+      }
+
+      if (group != null && group.length == 1 && !quantified) {
+        // a plain group is just a sequence, so it is inlined to be generated in two phases
+        flushLiterals(nodes, literals);
+        nodes.addAll(Arrays.asList(group[0]));
+        continue;
+      }
+
+      if (group == null && picker == null && rangePicker == null && !quantified) {
+        literals.append(character);
+        continue;
+      }
+
+      flushLiterals(nodes, literals);
+      if (group != null) {
+        nodes.add(new RegexNode.Group(regex.substring(begin, cursor), group, min, max, unbounded));
+      } else if (picker != null) {
+        nodes.add(new RegexNode.RepeatedPicker(picker, min, max, unbounded));
+      } else if (rangePicker != null) {
+        nodes.add(new RegexNode.RepeatedRange(rangePicker, min, max, unbounded));
+      } else {
+        nodes.add(new RegexNode.RepeatedLiteral(character, min, max, unbounded));
+      }
+    }
+    flushLiterals(nodes, literals);
+
+    return nodes.toArray(new RegexNode[nodes.size()]);
+  }
+
+  private RandomLetterPicker pickEscapedPicker(final char character) {
+    switch (character) {
+      case 'w':
+        return pickers.getWord();
+      case 'd':
+        return pickers.getDigit();
+      case 'W':
+        return pickers.getNotWord();
+      case 'D':
+        return pickers.getNotDigit();
+      case 's':
+        return pickers.getSpace();
+      case 'S':
+        return pickers.getAny();
+      default:
+        return null; // escaped literal character
+    }
+  }
+
+  /**
+   * Scan {@code {name}} after {@code \p} and returns the picker of the name. If the name isn't
+   * enclosed in braces, {@code \p} is an escaped literal {@code p} as well as other unknown escapes
+   * (e.g. {@code a\pb}); so is it if an unknown name is a quantifier (e.g. <code>\p{2}</code>).
+   */
+  private RandomLetterPicker scanNamedPicker() {
+    final int end = regex.indexOf('}', cursor);
+    if (cursor >= length || regex.charAt(cursor) != '{' || end < 0) {
+      return null; // escaped literal character
+    }
+    final String name = regex.substring(cursor + 1, end);
+    final RandomLetterPicker picker = namedPickers.get(name);
+    if (picker == null && name.matches("[0-9]+(,[0-9]*)?")) {
+      return null; // escaped literal character, which is quantified
+    }
+    if (picker == null) {
+      throw new RuntimeException("Detected unknown letter distribution: " + name);
+    }
+    cursor = end + 1;
+    return picker;
+  }
+
+  private static void flushLiterals(final List<RegexNode> nodes, final StringBuilder literals) {
+    if (literals.length() > 0) {
+      nodes.add(new RegexNode.LiteralRun(literals.toString()));
+      literals.setLength(0);
+    }
+  }
+
+  /**
+   * Scan a quantifier at the cursor. If there is a valid quantifier, this method advances the
+   * cursor, sets quantifierMin, quantifierMax and quantifierUnbounded and returns true. Otherwise
+   * characters are treated literally (e.g. {@code a{foo}}).
+   */
+  private boolean scanQuantifier() {
+    if (cursor >= length) {
+      return false;
+    }
+
+    switch (regex.charAt(cursor)) {
+      case '*':
+        return acceptQuantifier(0, numOfUpperLimit, true, cursor + 1);
+      case '+':
+        return acceptQuantifier(1, numOfUpperLimit, true, cursor + 1);
+      case '?':
+        return acceptQuantifier(0, 1, false, cursor + 1);
+      case '{':
+        break;
+      default:
+        return false;
+    }
+
+    int i = cursor + 1;
+    int start = scanNumber(i);
+    if (start < 0) {
+      return false;
+    }
+    int min = Integer.parseInt(regex.substring(i, start), 10);
+    i = start;
+
+    if (i < length && regex.charAt(i) == '}') {
+      return acceptQuantifier(min, min, false, i + 1);
+    }
+    if (i >= length || regex.charAt(i) != ',') {
+      return false;
+    }
+    i++;
+
+    if (i < length && regex.charAt(i) == '}') {
+      return acceptQuantifier(min, numOfUpperLimit, true, i + 1);
+    }
+    int end = scanNumber(i);
+    if (end < 0 || end >= length || regex.charAt(end) != '}') {
+      return false;
+    }
+    return acceptQuantifier(min, Integer.parseInt(regex.substring(i, end), 10), false, end + 1);
+  }
+
+  /**
+   * Returns the index just after the digits which begin at index, or -1 if there is no digit.
+   */
+  private int scanNumber(final int index) {
+    int i = index;
+    while (i < length && regex.charAt(i) >= '0' && regex.charAt(i) <= '9') {
+      i++;
+    }
+    return i == index ? -1 : i;
+  }
+
+  private boolean acceptQuantifier(final int min, final int max, final boolean unbounded,
+      final int nextCursor) {
+    quantifierMin = min;
+    quantifierMax = max;
+    quantifierUnbounded = unbounded;
+    cursor = nextCursor;
+    return true;
+  }
+}
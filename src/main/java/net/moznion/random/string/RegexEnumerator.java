@@ -0,0 +1,309 @@
+package net.moznion.random.string;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Enumeration of all strings which are generated by a finite regex.
+ *
+ * <p>
+ * Strings are ordered as numbers whose digits are nodes of the regex; the first node is the most
+ * significant. Strings of a node are ordered by length and then by letters in ascending order.
+ * Strings of a group are ordered by number of repetitions, and then as numbers whose digits are
+ * repetitions; each repetition is ordered by alternative and then by strings of the alternative. A
+ * string is enumerated once per way to generate it, so an ambiguous regex (e.g. {@code a?a?} or
+ * {@code (a|a)}) enumerates some strings more than once.
+ */
+class RegexEnumerator {
+  private final String regex;
+  private final String[] literals;
+  private final char[][] letters;
+  private final GroupEnumerator[] groups;
+  private final int[] minLengths;
+  private final int[] maxLengths;
+  private final BigInteger[] counts;
+  private final BigInteger count;
+
+  RegexEnumerator(String regex, RegexNode[] nodes) {
+    this.regex = regex;
+    literals = new String[nodes.length];
+    letters = new char[nodes.length][];
+    groups = new GroupEnumerator[nodes.length];
+    minLengths = new int[nodes.length];
+    maxLengths = new int[nodes.length];
+    counts = new BigInteger[nodes.length];
+
+    BigInteger count = BigInteger.ONE;
+    for (int i = 0; i < nodes.length; i++) {
+      final RegexNode node = nodes[i];
+      if (node.maxLength() == RegexNode.UNBOUNDED) {
+        throw new RuntimeException("Cannot enumerate strings of infinite regex: " + regex);
+      }
+      if (!(node instanceof RegexNode.Leaf)) {
+        groups[i] = new GroupEnumerator(regex, (RegexNode.Group) node);
+        counts[i] = groups[i].count;
+        count = count.multiply(counts[i]);
+        continue;
+      }
+      letters[i] = ((RegexNode.Leaf) node).distinctLetters();
+      if (letters[i] == null) {
+        literals[i] = ((RegexNode.LiteralRun) node).getLiteral();
+        counts[i] = BigInteger.ONE;
+      } else {
+        minLengths[i] = node.minLength();
+        maxLengths[i] = node.maxLength();
+        counts[i] = countOf(letters[i].length, minLengths[i], maxLengths[i]);
+      }
+      count = count.multiply(counts[i]);
+    }
+    this.count = count;
+  }
+
+  private static BigInteger countOf(final int numOfLetters, final int minLength,
+      final int maxLength) {
+    final BigInteger radix = BigInteger.valueOf(numOfLetters);
+    BigInteger count = BigInteger.ZERO;
+    BigInteger numOfStrings = radix.pow(minLength);
+    for (int length = minLength; length <= maxLength; length++) {
+      count = count.add(numOfStrings);
+      numOfStrings = numOfStrings.multiply(radix);
+    }
+    return count;
+  }
+
+  BigInteger count() {
+    return count;
+  }
+
+  String nth(final BigInteger index) {
+    if (index.signum() < 0 || index.compareTo(count) >= 0) {
+      throw new IndexOutOfBoundsException("index must be between 0 and " + count.subtract(
+          BigInteger.ONE) + ": " + index);
+    }
+
+    final String[] parts = new String[literals.length];
+    BigInteger rest = index;
+    for (int i = literals.length - 1; i >= 0; i--) {
+      final BigInteger[] quotientAndRemainder = rest.divideAndRemainder(counts[i]);
+      rest = quotientAndRemainder[0];
+      if (literals[i] != null) {
+        parts[i] = literals[i];
+      } else if (groups[i] != null) {
+        parts[i] = groups[i].nth(quotientAndRemainder[1]);
+      } else {
+        parts[i] = nthOfNode(i, quotientAndRemainder[1]);
+      }
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (String part : parts) {
+      sb.append(part);
+    }
+    return sb.toString();
+  }
+
+  private String nthOfNode(final int i, BigInteger index) {
+    final BigInteger radix = BigInteger.valueOf(letters[i].length);
+    BigInteger numOfStrings = radix.pow(minLengths[i]);
+    int length = minLengths[i];
+    while (index.compareTo(numOfStrings) >= 0) {
+      index = index.subtract(numOfStrings);
+      numOfStrings = numOfStrings.multiply(radix);
+      length++;
+    }
+
+    final char[] chars = new char[length];
+    for (int p = length - 1; p >= 0; p--) {
+      final BigInteger[] quotientAndRemainder = index.divideAndRemainder(radix);
+      chars[p] = letters[i][quotientAndRemainder[1].intValue()];
+      index = quotientAndRemainder[0];
+    }
+    return new String(chars);
+  }
+
+  Stream<String> enumerate() {
+    final Iterator<String> iterator = hasGroup() ? new IndexIterator() : new Odometer();
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+  }
+
+  private boolean hasGroup() {
+    for (GroupEnumerator group : groups) {
+      if (group != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Iterator which takes each string by {@link RegexEnumerator#nth(BigInteger)}, for regexes with
+   * groups whose digits can't be incremented in place.
+   */
+  private class IndexIterator implements Iterator<String> {
+    private BigInteger index = BigInteger.ZERO;
+
+    @Override
+    public boolean hasNext() {
+      return index.compareTo(count) < 0;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException("All strings have been enumerated: " + regex);
+      }
+      final String string = nth(index);
+      index = index.add(BigInteger.ONE);
+      return string;
+    }
+  }
+
+  /**
+   * Enumeration of strings of a finite group; each alternative is enumerated recursively.
+   */
+  private static class GroupEnumerator {
+    private final RegexEnumerator[] alternatives;
+    private final int min;
+    private final BigInteger bodyCount;
+    private final BigInteger count;
+
+    GroupEnumerator(String regex, RegexNode.Group group) {
+      final RegexNode[][] nodesOfAlternatives = group.getAlternatives();
+      alternatives = new RegexEnumerator[nodesOfAlternatives.length];
+      BigInteger bodyCount = BigInteger.ZERO;
+      for (int a = 0; a < alternatives.length; a++) {
+        alternatives[a] = new RegexEnumerator(regex, nodesOfAlternatives[a]);
+        bodyCount = bodyCount.add(alternatives[a].count);
+      }
+      this.bodyCount = bodyCount;
+      min = group.getMin();
+      count = countOf(bodyCount, min, group.getMax());
+    }
+
+    private static BigInteger countOf(final BigInteger bodyCount, final int min, final int max) {
+      if (bodyCount.equals(BigInteger.ONE)) {
+        return BigInteger.valueOf(max - min + 1L);
+      }
+      BigInteger count = BigInteger.ZERO;
+      BigInteger numOfStrings = bodyCount.pow(min);
+      for (int repetitions = min; repetitions <= max; repetitions++) {
+        count = count.add(numOfStrings);
+        numOfStrings = numOfStrings.multiply(bodyCount);
+      }
+      return count;
+    }
+
+    String nth(BigInteger index) {
+      int repetitions = min;
+      BigInteger numOfStrings = bodyCount.pow(min);
+      while (index.compareTo(numOfStrings) >= 0) {
+        index = index.subtract(numOfStrings);
+        numOfStrings = numOfStrings.multiply(bodyCount);
+        repetitions++;
+      }
+
+      final String[] parts = new String[repetitions];
+      for (int r = repetitions - 1; r >= 0; r--) {
+        final BigInteger[] quotientAndRemainder = index.divideAndRemainder(bodyCount);
+        parts[r] = nthOfBody(quotientAndRemainder[1]);
+        index = quotientAndRemainder[0];
+      }
+
+      StringBuilder sb = new StringBuilder();
+      for (String part : parts) {
+        sb.append(part);
+      }
+      return sb.toString();
+    }
+
+    private String nthOfBody(BigInteger index) {
+      for (RegexEnumerator alternative : alternatives) {
+        if (index.compareTo(alternative.count) < 0) {
+          return alternative.nth(index);
+        }
+        index = index.subtract(alternative.count);
+      }
+      throw new IllegalStateException("index exceeds count of group");
+    }
+  }
+
+  /**
+   * Iterator which increments digits of each node in place, in the same order as
+   * {@link RegexEnumerator#nth(BigInteger)}.
+   */
+  private class Odometer implements Iterator<String> {
+    private final int[] lengths;
+    private final int[][] digits;
+    private boolean hasNext;
+
+    Odometer() {
+      lengths = minLengths.clone();
+      digits = new int[literals.length][];
+      for (int i = 0; i < literals.length; i++) {
+        digits[i] = new int[maxLengths[i]];
+      }
+      hasNext = count.signum() > 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return hasNext;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext) {
+        throw new NoSuchElementException("All strings have been enumerated: " + regex);
+      }
+
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < literals.length; i++) {
+        if (literals[i] != null) {
+          sb.append(literals[i]);
+          continue;
+        }
+        for (int p = 0; p < lengths[i]; p++) {
+          sb.append(letters[i][digits[i][p]]);
+        }
+      }
+
+      hasNext = false;
+      for (int i = literals.length - 1; i >= 0; i--) {
+        if (increment(i)) {
+          hasNext = true;
+          break;
+        }
+      }
+      return sb.toString();
+    }
+
+    /**
+     * Increment digits of the node. When the node wraps around, it is reset to the first string and
+     * false is returned to carry to the previous node.
+     */
+    private boolean increment(final int i) {
+      if (literals[i] != null) {
+        return false;
+      }
+      final int radix = letters[i].length;
+      for (int p = lengths[i] - 1; p >= 0; p--) {
+        if (++digits[i][p] < radix) {
+          return true;
+        }
+        digits[i][p] = 0;
+      }
+      if (lengths[i] < maxLengths[i]) {
+        lengths[i]++;
+        return true;
+      }
+      lengths[i] = minLengths[i];
+      return false;
+    }
+  }
+}
@@ -0,0 +1,756 @@
+package net.moznion.random.string;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+abstract class RegexNode {
+  /**
+   * Value of {@link #maxLength()} for nodes which can be repeated infinitely when a length of
+   * result is specified (e.g. {@code a*}).
+   */
+  static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  void generate(StringBuilder sb, RandomSource random) {
+    generate(sb, random, drawLength(random));
+  }
+
+  void generate(ChunkedCharSink sink, RandomSource random) throws IOException {
+    generate(sink, random, drawLength(random));
+  }
+
+  /**
+   * Draw length of the part which is generated by this node without specified length of result.
+   */
+  abstract int drawLength(RandomSource random);
+
+  /**
+   * Generate exactly length characters. length must be between {@link #minLength()} and
+   * {@link #maxLength()}.
+   */
+  abstract void generate(StringBuilder sb, RandomSource random, int length);
+
+  /**
+   * Generate exactly length characters into the sink, as well as
+   * {@link #generate(StringBuilder, RandomSource, int)}.
+   */
+  abstract void generate(ChunkedCharSink sink, RandomSource random, int length)
+      throws IOException;
+
+  /**
+   * Generate exactly length characters into dst from off as ASCII bytes. Available only if
+   * {@link #isAscii()}.
+   */
+  abstract void generate(byte[] dst, int off, RandomSource random, int length);
+
+  /**
+   * Add the picker of each character which is generated by this node to positions; a literal is
+   * added as a picker of the single letter.
+   *
+   * @return false if length of this node isn't fixed
+   */
+  abstract boolean collectPositions(List<RandomLetterPicker> positions);
+
+  /**
+   * Whether all characters which can be generated by this node are ASCII characters.
+   */
+  abstract boolean isAscii();
+
+  abstract int minLength();
+
+  abstract int maxLength();
+
+  /**
+   * Maximum of {@link #drawLength(RandomSource)}; unlike {@link #maxLength()}, this is limited by
+   * number of upper limit.
+   */
+  abstract int maxDrawnLength();
+
+  /**
+   * Expected value of {@link #drawLength(RandomSource)}.
+   */
+  abstract double expectedLength();
+
+  /**
+   * Lengths up to the limit which this node can generate when a length of result is specified.
+   */
+  LengthSet lengthsUpTo(int limit) {
+    return LengthSet.range(minLength(), maxLength(), limit);
+  }
+
+  /**
+   * Node which repeats a single letter set, as opposed to a group of nodes.
+   */
+  abstract static class Leaf extends RegexNode {
+    /**
+     * Distinct letters of each repetition in ascending order, for enumeration of all strings;
+     * null for a literal run, which is repeated only once.
+     */
+    abstract char[] distinctLetters();
+  }
+
+  /**
+   * Run of literal characters. Its length counts code points as well as {@link RepeatedRange}, so
+   * a supplementary character counts as one.
+   */
+  static class LiteralRun extends Leaf {
+    private final String literal;
+    private final byte[] literalBytes;
+    private final int length;
+
+    LiteralRun(String literal) {
+      this.literal = literal;
+      this.literalBytes = literal.getBytes(StandardCharsets.ISO_8859_1);
+      this.length = literal.codePointCount(0, literal.length());
+    }
+
+    @Override
+    void generate(StringBuilder sb, RandomSource random, int length) {
+      sb.append(literal);
+    }
+
+    @Override
+    void generate(ChunkedCharSink sink, RandomSource random, int length) throws IOException {
+      sink.append(literal);
+    }
+
+    @Override
+    void generate(byte[] dst, int off, RandomSource random, int length) {
+      System.arraycopy(literalBytes, 0, dst, off, literalBytes.length);
+    }
+
+    @Override
+    boolean collectPositions(List<RandomLetterPicker> positions) {
+      for (int i = 0; i < literal.length(); i++) {
+        positions.add(RandomLetterPicker.constructByLetter(literal.charAt(i)));
+      }
+      return true;
+    }
+
+    @Override
+    char[] distinctLetters() {
+      return null;
+    }
+
+    @Override
+    boolean isAscii() {
+      return RandomLetterPicker.isAscii(literal.toCharArray());
+    }
+
+    String getLiteral() {
+      return literal;
+    }
+
+    @Override
+    int drawLength(RandomSource random) {
+      return length;
+    }
+
+    @Override
+    int minLength() {
+      return length;
+    }
+
+    @Override
+    int maxLength() {
+      return length;
+    }
+
+    @Override
+    int maxDrawnLength() {
+      return length;
+    }
+
+    @Override
+    double expectedLength() {
+      return length;
+    }
+  }
+
+  abstract static class Quantified extends Leaf {
+    private final int min;
+    private final int max;
+    private final boolean unbounded;
+
+    Quantified(int min, int max, boolean unbounded) {
+      if (min > max) {
+        throw new RuntimeException("Detected invalid quantifier: " + "{" + min + "," + max + "}");
+      }
+      this.min = min;
+      this.max = max;
+      this.unbounded = unbounded;
+    }
+
+    @Override
+    int drawLength(RandomSource random) {
+      if (min == max) {
+        return min;
+      }
+      return random.nextInt(max - min + 1) + min;
+    }
+
+    @Override
+    int minLength() {
+      return min;
+    }
+
+    /**
+     * Quantifiers without upper bound (e.g. {@code *}, {@code +} and <code>{n,}</code>) are not
+     * limited by number of upper limit when a length of result is specified.
+     */
+    @Override
+    int maxLength() {
+      return unbounded ? UNBOUNDED : max;
+    }
+
+    @Override
+    int maxDrawnLength() {
+      return max;
+    }
+
+    @Override
+    double expectedLength() {
+      return (min + (double) max) / 2;
+    }
+  }
+
+  static class RepeatedLiteral extends Quantified {
+    private final char literal;
+
+    RepeatedLiteral(char literal, int min, int max, boolean unbounded) {
+      super(min, max, unbounded);
+      this.literal = literal;
+    }
+
+    @Override
+    void generate(StringBuilder sb, RandomSource random, int length) {
+      for (int i = 0; i < length; i++) {
+        sb.append(literal);
+      }
+    }
+
+    @Override
+    void generate(ChunkedCharSink sink, RandomSource random, int length) throws IOException {
+      sink.append(literal, length);
+    }
+
+    @Override
+    void generate(byte[] dst, int off, RandomSource random, int length) {
+      Arrays.fill(dst, off, off + length, (byte) literal);
+    }
+
+    @Override
+    boolean collectPositions(List<RandomLetterPicker> positions) {
+      if (minLength() != maxDrawnLength()) {
+        return false;
+      }
+      final RandomLetterPicker picker = RandomLetterPicker.constructByLetter(literal);
+      for (int i = 0; i < minLength(); i++) {
+        positions.add(picker);
+      }
+      return true;
+    }
+
+    @Override
+    char[] distinctLetters() {
+      return new char[] {literal};
+    }
+
+    @Override
+    boolean isAscii() {
+      return literal <= 0x7f;
+    }
+  }
+
+  static class RepeatedPicker extends Quantified {
+    private final RandomLetterPicker picker;
+
+    RepeatedPicker(RandomLetterPicker picker, int min, int max, boolean unbounded) {
+      super(min, max, unbounded);
+      this.picker = picker;
+    }
+
+    @Override
+    void generate(StringBuilder sb, RandomSource random, int length) {
+      if (length == 1) {
+        picker.appendTo(sb, random);
+      } else {
+        picker.appendTo(sb, length, random);
+      }
+    }
+
+    @Override
+    void generate(ChunkedCharSink sink, RandomSource random, int length) throws IOException {
+      sink.append(picker, length, random);
+    }
+
+    @Override
+    void generate(byte[] dst, int off, RandomSource random, int length) {
+      picker.fill(dst, off, length, random);
+    }
+
+    @Override
+    boolean collectPositions(List<RandomLetterPicker> positions) {
+      if (minLength() != maxDrawnLength()) {
+        return false;
+      }
+      for (int i = 0; i < minLength(); i++) {
+        positions.add(picker);
+      }
+      return true;
+    }
+
+    @Override
+    char[] distinctLetters() {
+      return picker.getDistinctLetters();
+    }
+
+    @Override
+    boolean isAscii() {
+      return picker.isAscii();
+    }
+  }
+
+  /**
+   * Repetition of a character class which is picked by intervals of code points. Lengths count
+   * code points, so a supplementary code point takes two chars in the result.
+   */
+  static class RepeatedRange extends Quantified {
+    private final CodePointRangePicker picker;
+
+    RepeatedRange(CodePointRangePicker picker, int min, int max, boolean unbounded) {
+      super(min, max, unbounded);
+      this.picker = picker;
+    }
+
+    @Override
+    void generate(StringBuilder sb, RandomSource random, int length) {
+      picker.appendTo(sb, length, random);
+    }
+
+    @Override
+    void generate(ChunkedCharSink sink, RandomSource random, int length) throws IOException {
+      sink.append(picker, length, random);
+    }
+
+    @Override
+    void generate(byte[] dst, int off, RandomSource random, int length) {
+      picker.fill(dst, off, length, random);
+    }
+
+    @Override
+    boolean collectPositions(List<RandomLetterPicker> positions) {
+      // large classes are not encoded by a table of letters
+      return false;
+    }
+
+    @Override
+    char[] distinctLetters() {
+      return picker.getDistinctLetters();
+    }
+
+    @Override
+    boolean isAscii() {
+      return picker.isAscii();
+    }
+  }
+
+  /**
+   * Group of alternatives which is repeated by a quantifier (e.g. {@code (foo|bar){2,4}}). Each
+   * repetition takes one of alternatives uniformly at random, so length of a group isn't known
+   * until it is generated; groups are generated in a single pass instead of drawing lengths first.
+   */
+  static class Group extends RegexNode {
+    private final String source;
+    private final RegexNode[][] alternatives;
+    private final int min;
+    private final int max;
+    private final boolean unbounded;
+
+    Group(String source, RegexNode[][] alternatives, int min, int max, boolean unbounded) {
+      if (min > max) {
+        throw new RuntimeException("Detected invalid quantifier: " + "{" + min + "," + max + "}");
+      }
+      this.source = source;
+      this.alternatives = alternatives;
+      this.min = min;
+      this.max = max;
+      this.unbounded = unbounded;
+    }
+
+    RegexNode[][] getAlternatives() {
+      return alternatives;
+    }
+
+    int getMin() {
+      return min;
+    }
+
+    int getMax() {
+      return max;
+    }
+
+    private int drawCount(RandomSource random) {
+      if (min == max) {
+        return min;
+      }
+      return random.nextInt(max - min + 1) + min;
+    }
+
+    private RegexNode[] drawAlternative(RandomSource random) {
+      if (alternatives.length == 1) {
+        return alternatives[0];
+      }
+      return alternatives[random.nextInt(alternatives.length)];
+    }
+
+    @Override
+    void generate(StringBuilder sb, RandomSource random) {
+      for (int count = drawCount(random); count > 0; count--) {
+        for (RegexNode node : drawAlternative(random)) {
+          node.generate(sb, random);
+        }
+      }
+    }
+
+    @Override
+    void generate(ChunkedCharSink sink, RandomSource random) throws IOException {
+      for (int count = drawCount(random); count > 0; count--) {
+        for (RegexNode node : drawAlternative(random)) {
+          node.generate(sink, random);
+        }
+      }
+    }
+
+    /**
+     * Draw a length in the same way as natural generation: a number of repetitions, an alternative
+     * for each of them and a length for each node of it.
+     */
+    @Override
+    int drawLength(RandomSource random) {
+      long length = 0;
+      for (int count = drawCount(random); count > 0; count--) {
+        for (RegexNode node : drawAlternative(random)) {
+          length += node.drawLength(random);
+        }
+      }
+      return (int) Math.min(length, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Generate exactly length characters. Alternatives and their lengths are chosen uniformly at
+     * random among those which can sum up to the length.
+     *
+     * @throws RuntimeException If the group can't generate a string of the length
+     */
+    @Override
+    void generate(StringBuilder sb, RandomSource random, int length) {
+      final LengthSet[] alternativeLengths = new LengthSet[alternatives.length];
+      final LengthSet bodyLengths = bodyLengthsUpTo(length, alternativeLengths);
+      final int[] chosenLengths = unbounded
+          ? chooseUnboundedRepetitions(bodyLengths, length, random)
+          : chooseBoundedRepetitions(bodyLengths, length, random);
+
+      for (int chosenLength : chosenLengths) {
+        final int a = drawAlternativeOfLength(alternativeLengths, chosenLength, random);
+        generateSequence(sb, random, alternatives[a], chosenLength);
+      }
+    }
+
+    /**
+     * Choose number of repetitions first and then length of each repetition from the last one, so
+     * that the rest can always be filled.
+     */
+    private int[] chooseBoundedRepetitions(final LengthSet bodyLengths, final int length,
+        final RandomSource random) {
+      final List<LengthSet> repeatedLengths = repeatedLengthsUpTo(bodyLengths, length);
+      int numOfCounts = 0;
+      final int[] counts = new int[repeatedLengths.size()];
+      for (int count = min; count < repeatedLengths.size(); count++) {
+        if (repeatedLengths.get(count).contains(length)) {
+          counts[numOfCounts++] = count;
+        }
+      }
+      if (numOfCounts == 0) {
+        throw cannotGenerate(length);
+      }
+
+      final int count = counts[random.nextInt(numOfCounts)];
+      final int[] chosenLengths = new int[count];
+      final int last = bodyLengths.last();
+      int rest = length;
+      for (int i = count - 1; i >= 0; i--) {
+        chosenLengths[i] =
+            drawLength(bodyLengths, last, 0, rest, repeatedLengths.get(i), random);
+        rest -= chosenLengths[i];
+      }
+      return chosenLengths;
+    }
+
+    /**
+     * Choose length of each repetition until the length is filled. Number of repetitions isn't
+     * limited, so only lengths which can be filled by some number of repetitions are tracked,
+     * instead of lengths of each number of repetitions.
+     */
+    private int[] chooseUnboundedRepetitions(final LengthSet bodyLengths, final int length,
+        final RandomSource random) {
+      final LengthSet[] fillableLengths = fillableLengthsUpTo(bodyLengths, length);
+      if (!fillableLengths[min].contains(length)) {
+        throw cannotGenerate(length);
+      }
+
+      final int last = bodyLengths.last();
+      int[] chosenLengths = new int[Math.max(min, 4)];
+      int count = 0;
+      int rest = length;
+      while (rest > 0 || count < min) {
+        // an empty repetition is taken only to satisfy the minimum
+        final LengthSet restLengths = fillableLengths[Math.max(0, min - count - 1)];
+        final int chosenLength =
+            drawLength(bodyLengths, last, rest > 0 ? 1 : 0, rest, restLengths, random);
+        if (count == chosenLengths.length) {
+          chosenLengths = Arrays.copyOf(chosenLengths, count * 2);
+        }
+        chosenLengths[count++] = chosenLength;
+        rest -= chosenLength;
+      }
+      return Arrays.copyOf(chosenLengths, count);
+    }
+
+    /**
+     * Draw a length between from and rest uniformly at random among lengths which leave a length
+     * in restLengths. last is the largest length of lengths, beyond which the bitmap isn't
+     * scanned, so that repeated draws don't take time proportional to the rest each.
+     */
+    private static int drawLength(final LengthSet lengths, final int last, final int from,
+        final int rest, final LengthSet restLengths, final RandomSource random) {
+      final int to = Math.min(rest, last);
+      int numOfCandidates = 0;
+      for (int l = lengths.next(from, to); l >= 0; l = lengths.next(l + 1, to)) {
+        if (restLengths.contains(rest - l)) {
+          numOfCandidates++;
+        }
+      }
+      int k = random.nextInt(numOfCandidates);
+      for (int l = lengths.next(from, to);; l = lengths.next(l + 1, to)) {
+        if (restLengths.contains(rest - l) && k-- == 0) {
+          return l;
+        }
+      }
+    }
+
+    private RuntimeException cannotGenerate(final int length) {
+      return new RuntimeException(
+          "Cannot generate a string of length " + length + " from regex: " + source);
+    }
+
+    private int drawAlternativeOfLength(final LengthSet[] alternativeLengths, final int length,
+        final RandomSource random) {
+      int numOfCandidates = 0;
+      for (LengthSet lengths : alternativeLengths) {
+        if (lengths.contains(length)) {
+          numOfCandidates++;
+        }
+      }
+      int k = random.nextInt(numOfCandidates);
+      for (int a = 0;; a++) {
+        if (alternativeLengths[a].contains(length) && k-- == 0) {
+          return a;
+        }
+      }
+    }
+
+    private static void generateSequence(final StringBuilder sb, final RandomSource random,
+        final RegexNode[] nodes, final int length) {
+      if (nodes.length == 1) {
+        nodes[0].generate(sb, random, length);
+        return;
+      }
+
+      // lengths which the first i nodes can generate
+      final LengthSet[] nodeLengths = new LengthSet[nodes.length];
+      final LengthSet[] prefixLengths = new LengthSet[nodes.length + 1];
+      prefixLengths[0] = LengthSet.range(0, 0, length);
+      for (int i = 0; i < nodes.length; i++) {
+        nodeLengths[i] = nodes[i].lengthsUpTo(length);
+        prefixLengths[i + 1] = prefixLengths[i].plus(nodeLengths[i]);
+      }
+
+      final int[] lengths = new int[nodes.length];
+      int rest = length;
+      for (int i = nodes.length - 1; i >= 0; i--) {
+        lengths[i] = drawLength(nodeLengths[i], length, 0, rest, prefixLengths[i], random);
+        rest -= lengths[i];
+      }
+
+      for (int i = 0; i < nodes.length; i++) {
+        nodes[i].generate(sb, random, lengths[i]);
+      }
+    }
+
+    /**
+     * Lengths which a single repetition can generate; lengths of each alternative are stored into
+     * alternativeLengths.
+     */
+    private LengthSet bodyLengthsUpTo(final int limit, final LengthSet[] alternativeLengths) {
+      final LengthSet bodyLengths = new LengthSet(limit);
+      for (int a = 0; a < alternatives.length; a++) {
+        LengthSet lengths = LengthSet.range(0, 0, limit);
+        for (RegexNode node : alternatives[a]) {
+          lengths = lengths.plus(node.lengthsUpTo(limit));
+        }
+        alternativeLengths[a] = lengths;
+        bodyLengths.addAll(lengths);
+      }
+      return bodyLengths;
+    }
+
+    /**
+     * Lengths which each number of repetitions can generate, indexed by the number. Repetitions
+     * which are not listed can't generate any length or generate the same lengths as the last one.
+     */
+    private List<LengthSet> repeatedLengthsUpTo(final LengthSet bodyLengths, final int limit) {
+      final List<LengthSet> repeatedLengths = new ArrayList<>();
+      repeatedLengths.add(LengthSet.range(0, 0, limit));
+      for (int count = 1; count <= max; count++) {
+        final LengthSet previous = repeatedLengths.get(count - 1);
+        final LengthSet lengths = previous.plus(bodyLengths);
+        if (lengths.isEmpty() || (count > min && lengths.sameAs(previous))) {
+          break;
+        }
+        repeatedLengths.add(lengths);
+      }
+      return repeatedLengths;
+    }
+
+    /**
+     * Lengths which can be filled by unbounded repetitions, indexed by the minimum number of them.
+     * Lengths of any number of repetitions are the closure of lengths of a repetition, which is
+     * computed in linear time to the limit; see {@link LengthSet#closure()}.
+     */
+    private LengthSet[] fillableLengthsUpTo(final LengthSet bodyLengths, final int limit) {
+      final LengthSet closure = bodyLengths.closure();
+
+      final LengthSet[] fillableLengths = new LengthSet[min + 1];
+      fillableLengths[0] = closure;
+      for (int i = 1; i <= min; i++) {
+        fillableLengths[i] = fillableLengths[i - 1].plus(bodyLengths);
+      }
+      return fillableLengths;
+    }
+
+    @Override
+    LengthSet lengthsUpTo(int limit) {
+      final LengthSet bodyLengths = bodyLengthsUpTo(limit, new LengthSet[alternatives.length]);
+      if (unbounded) {
+        return fillableLengthsUpTo(bodyLengths, limit)[min];
+      }
+      final List<LengthSet> repeatedLengths = repeatedLengthsUpTo(bodyLengths, limit);
+      final LengthSet lengths = new LengthSet(limit);
+      for (int count = min; count < repeatedLengths.size(); count++) {
+        lengths.addAll(repeatedLengths.get(count));
+      }
+      return lengths;
+    }
+
+    @Override
+    void generate(ChunkedCharSink sink, RandomSource random, int length) throws IOException {
+      StringBuilder sb = new StringBuilder(length);
+      generate(sb, random, length);
+      sink.append(sb.toString());
+    }
+
+    @Override
+    void generate(byte[] dst, int off, RandomSource random, int length) {
+      StringBuilder sb = new StringBuilder(length);
+      generate(sb, random, length);
+      for (int i = 0; i < length; i++) {
+        dst[off + i] = (byte) sb.charAt(i);
+      }
+    }
+
+    @Override
+    boolean collectPositions(List<RandomLetterPicker> positions) {
+      if (alternatives.length != 1 || min != max) {
+        return false;
+      }
+      List<RandomLetterPicker> body = new ArrayList<>();
+      for (RegexNode node : alternatives[0]) {
+        if (!node.collectPositions(body)) {
+          return false;
+        }
+      }
+      for (int i = 0; i < min; i++) {
+        positions.addAll(body);
+      }
+      return true;
+    }
+
+    @Override
+    boolean isAscii() {
+      for (RegexNode[] alternative : alternatives) {
+        for (RegexNode node : alternative) {
+          if (!node.isAscii()) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    @Override
+    int minLength() {
+      long minOfAlternatives = Long.MAX_VALUE;
+      for (RegexNode[] alternative : alternatives) {
+        long sum = 0;
+        for (RegexNode node : alternative) {
+          sum += node.minLength();
+        }
+        minOfAlternatives = Math.min(minOfAlternatives, sum);
+      }
+      return (int) Math.min(min * minOfAlternatives, UNBOUNDED);
+    }
+
+    @Override
+    int maxLength() {
+      long maxOfAlternatives = 0;
+      for (RegexNode[] alternative : alternatives) {
+        long sum = 0;
+        for (RegexNode node : alternative) {
+          sum += node.maxLength();
+        }
+        maxOfAlternatives = Math.max(maxOfAlternatives, sum);
+      }
+      if (maxOfAlternatives > 0 && unbounded) {
+        return UNBOUNDED;
+      }
+      return (int) Math.min(max * maxOfAlternatives, UNBOUNDED);
+    }
+
+    @Override
+    int maxDrawnLength() {
+      long maxOfAlternatives = 0;
+      for (RegexNode[] alternative : alternatives) {
+        long sum = 0;
+        for (RegexNode node : alternative) {
+          sum += node.maxDrawnLength();
+        }
+        maxOfAlternatives = Math.max(maxOfAlternatives, sum);
+      }
+      return (int) Math.min(max * maxOfAlternatives, Integer.MAX_VALUE);
+    }
+
+    @Override
+    double expectedLength() {
+      double sumOfAlternatives = 0;
+      for (RegexNode[] alternative : alternatives) {
+        for (RegexNode node : alternative) {
+          sumOfAlternatives += node.expectedLength();
+        }
+      }
+      return (min + (double) max) / 2 * sumOfAlternatives / alternatives.length;
+    }
+  }
+}
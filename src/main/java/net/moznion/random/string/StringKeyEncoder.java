@@ -0,0 +1,148 @@
+package net.moznion.random.string;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoder of generated strings into long keys, to track them in {@link LongHashSet}.
+ */
+abstract class StringKeyEncoder {
+  /**
+   * Number of distinct keys which is used to detect exhaustion, or -1 if it is unknown.
+   */
+  abstract long spaceSize();
+
+  abstract long encode(CharSequence s);
+
+  /**
+   * Exact encoder for strings of fixed length whose characters are picked by the pickers at each
+   * position. Returns null if the number of distinct strings doesn't fit into a long.
+   */
+  static MixedRadixEncoder forPositions(final List<RandomLetterPicker> positions) {
+    final Alphabet[] alphabets = new Alphabet[positions.size()];
+    final Map<RandomLetterPicker, Alphabet> alphabetsByPicker = new IdentityHashMap<>();
+    long spaceSize = 1;
+    for (int i = 0; i < alphabets.length; i++) {
+      alphabets[i] = alphabetsByPicker.computeIfAbsent(positions.get(i), Alphabet::new);
+      try {
+        spaceSize = Math.multiplyExact(spaceSize, alphabets[i].letters.length);
+      } catch (ArithmeticException e) {
+        return null;
+      }
+    }
+    return new MixedRadixEncoder(alphabets, spaceSize);
+  }
+
+  static StringKeyEncoder hashing() {
+    return HashingEncoder.INSTANCE;
+  }
+
+  /**
+   * Distinct letters of a picker and their ordinals.
+   */
+  private static class Alphabet {
+    private final char[] letters;
+    private final int[] ordinals;
+
+    Alphabet(RandomLetterPicker picker) {
+      int maxLetter = 0;
+      for (char c : picker.getLetters()) {
+        maxLetter = Math.max(maxLetter, c);
+      }
+      ordinals = new int[maxLetter + 1];
+      char[] distinctLetters = new char[picker.getLetters().length];
+      int numOfDistinctLetters = 0;
+      for (char c : picker.getLetters()) {
+        if (ordinals[c] == 0) {
+          distinctLetters[numOfDistinctLetters++] = c;
+          ordinals[c] = numOfDistinctLetters;
+        }
+      }
+      for (int c = 0; c <= maxLetter; c++) {
+        ordinals[c]--;
+      }
+      letters = new char[numOfDistinctLetters];
+      System.arraycopy(distinctLetters, 0, letters, 0, numOfDistinctLetters);
+    }
+
+    int ordinalOf(char c) {
+      final int ordinal = c < ordinals.length ? ordinals[c] : -1;
+      if (ordinal < 0) {
+        throw new IllegalArgumentException("'" + c + "' can't be generated at the position");
+      }
+      return ordinal;
+    }
+  }
+
+  /**
+   * Exact encoding; each string is regarded as a number whose digits are ordinals of its letters.
+   */
+  static class MixedRadixEncoder extends StringKeyEncoder {
+    private final Alphabet[] alphabets;
+    private final long spaceSize;
+
+    MixedRadixEncoder(Alphabet[] alphabets, long spaceSize) {
+      this.alphabets = alphabets;
+      this.spaceSize = spaceSize;
+    }
+
+    @Override
+    long spaceSize() {
+      return spaceSize;
+    }
+
+    @Override
+    long encode(CharSequence s) {
+      if (s.length() != alphabets.length) {
+        throw new IllegalArgumentException("Length must be " + alphabets.length + ": " + s);
+      }
+      long key = 0;
+      for (int i = 0; i < alphabets.length; i++) {
+        key = key * alphabets[i].letters.length + alphabets[i].ordinalOf(s.charAt(i));
+      }
+      return key;
+    }
+
+    /**
+     * Inverse of {@link #encode(CharSequence)}.
+     */
+    String decode(long key) {
+      final char[] chars = new char[alphabets.length];
+      for (int i = alphabets.length - 1; i >= 0; i--) {
+        final int radix = alphabets[i].letters.length;
+        chars[i] = alphabets[i].letters[(int) (key % radix)];
+        key /= radix;
+      }
+      return new String(chars);
+    }
+  }
+
+  /**
+   * 64-bit hash of strings. Distinct strings may share a key with negligible probability (about
+   * 3 * 10^-6 for 10 million strings); such a string is regarded as a duplicate.
+   */
+  static class HashingEncoder extends StringKeyEncoder {
+    static final HashingEncoder INSTANCE = new HashingEncoder();
+
+    private HashingEncoder() {
+    }
+
+    @Override
+    long spaceSize() {
+      return -1;
+    }
+
+    @Override
+    long encode(CharSequence s) {
+      // FNV-1a followed by the finalizer of MurmurHash3
+      long h = 0xcbf29ce484222325L;
+      for (int i = 0; i < s.length(); i++) {
+        h = (h ^ s.charAt(i)) * 0x100000001b3L;
+      }
+      h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+      h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+      return h ^ (h >>> 33);
+    }
+  }
+}
@@ -0,0 +1,329 @@
+package net.moznion.random.string;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pool of pre-generated random strings of a regex or a pattern, for request paths which need a
+ * token with low latency.
+ *
+ * <p>
+ * Tokens are kept in a bounded lock-free ring, and a background thread tops it up to the high
+ * watermark whenever it drops to the low watermark. {@link #poll()} never blocks; it takes a
+ * token from the ring, or generates one inline if the ring is empty. So the cost of generation
+ * (e.g. gathering entropy of SecureRandom) is moved out of the request path as long as the refill
+ * keeps up.
+ *
+ * <p>
+ * Instance of this class is thread-safe. Tokens are generated both by the background thread and by
+ * callers of {@link #poll()}, so they share the source of randomness of the generator; a source
+ * which isn't thread-safe (e.g. {@link RandomSource#of(java.util.SplittableRandom)} or a
+ * user-defined one) is used under a lock by the pool.
+ *
+ * <pre>
+ * <code>
+ * RandomStringGenerator generator = new RandomStringGenerator(new SecureRandom());
+ * TokenPool pool = TokenPool.byRegex(generator, "[0-9a-f]{32}")
+ *     .setHighWatermark(4096)
+ *     .setLowWatermark(1024)
+ *     .build();
+ *
+ * String token = pool.poll();
+ * </code>
+ * </pre>
+ *
+ * <p>
+ * Please {@link #close()} the pool to stop the background thread.
+ *
+ * @author moznion
+ *
+ */
+public class TokenPool implements AutoCloseable {
+  private static final int DEFAULT_HIGH_WATERMARK = 1024;
+  private static final int DEFAULT_BATCH_SIZE = 64;
+  private static final long REFILL_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+  private final String source;
+  private final Supplier<String> generator;
+  private final Consumer<String[]> batchGenerator;
+  private final int lowWatermark;
+  private final int highWatermark;
+  private final int batchSize;
+  private final TokenRing ring;
+  private final Thread refiller;
+  private volatile boolean closed;
+
+  // time when refill was requested, or 0 if it isn't requested
+  private final AtomicLong refillRequestedNanos = new AtomicLong();
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final AtomicLong refilledCount = new AtomicLong();
+  private final AtomicLong refillCount = new AtomicLong();
+  private final AtomicLong totalRefillLagNanos = new AtomicLong();
+  private final AtomicLong maxRefillLagNanos = new AtomicLong();
+  private final AtomicLong refillErrorCount = new AtomicLong();
+
+  /**
+   * Builder of {@link TokenPool}.
+   */
+  public static class Builder {
+    private final String source;
+    private final Supplier<String> generator;
+    private final Consumer<String[]> batchGenerator;
+    private int highWatermark;
+    private int lowWatermark;
+    private int batchSize;
+    private ThreadFactory threadFactory;
+
+    Builder(String source, Supplier<String> generator, Consumer<String[]> batchGenerator) {
+      this.source = source;
+      this.generator = generator;
+      this.batchGenerator = batchGenerator;
+      highWatermark = DEFAULT_HIGH_WATERMARK;
+      lowWatermark = -1;
+      batchSize = DEFAULT_BATCH_SIZE;
+      threadFactory = null;
+    }
+
+    /**
+     * Set number of tokens up to which the pool is filled (default: 1024).
+     *
+     * @param highWatermark High watermark
+     * @return This builder
+     */
+    public Builder setHighWatermark(int highWatermark) {
+      this.highWatermark = highWatermark;
+      return this;
+    }
+
+    /**
+     * Set number of tokens at which the pool requests refill (default: a quarter of the high
+     * watermark).
+     *
+     * @param lowWatermark Low watermark
+     * @return This builder
+     */
+    public Builder setLowWatermark(int lowWatermark) {
+      this.lowWatermark = lowWatermark;
+      return this;
+    }
+
+    /**
+     * Set number of tokens which are generated at once in background (default: 64).
+     *
+     * @param batchSize Number of tokens per batch
+     * @return This builder
+     */
+    public Builder setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * Set a factory of the background thread (default: a daemon thread). For example, a factory
+     * of virtual threads can be set on Java 21 or later.
+     *
+     * @param threadFactory Factory of the background thread
+     * @return This builder
+     */
+    public Builder setThreadFactory(ThreadFactory threadFactory) {
+      this.threadFactory = threadFactory;
+      return this;
+    }
+
+    /**
+     * Build a pool, which is filled up to the high watermark before this method returns so that
+     * the first requests are served from the pool.
+     *
+     * @return Pool
+     * @throws IllegalArgumentException If watermarks or the batch size are invalid
+     */
+    public TokenPool build() {
+      if (highWatermark <= 0) {
+        throw new IllegalArgumentException("highWatermark must be positive: " + highWatermark);
+      }
+      final int low = lowWatermark < 0 ? highWatermark / 4 : lowWatermark;
+      if (low >= highWatermark) {
+        throw new IllegalArgumentException(
+            "lowWatermark must be less than highWatermark: " + low + " >= " + highWatermark);
+      }
+      if (batchSize <= 0) {
+        throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+      }
+      return new TokenPool(this, low);
+    }
+  }
+
+  /**
+   * Get a builder of pool of random strings from regular expression. The regex is compiled only
+   * once; see {@link RandomStringGenerator#generateByRegex(String)} for its syntax.
+   *
+   * <p>
+   * Source of randomness of the generator is drawn from the background thread and the callers of
+   * {@link #poll()} concurrently, so it's used under a lock unless it's known to be thread-safe.
+   *
+   * @param generator Generator of random strings
+   * @param regex Pattern based on regular expression
+   * @return Builder
+   */
+  public static Builder byRegex(RandomStringGenerator generator, String regex) {
+    final CompiledRegex compiled = generator.compile(regex).threadSafe();
+    return new Builder(regex, compiled::generate, compiled::generateMany);
+  }
+
+  /**
+   * Get a builder of pool of random strings from pattern. The pattern is compiled only once; see
+   * {@link RandomStringGenerator#generateFromPattern(String)} for its syntax.
+   *
+   * <p>
+   * Source of randomness of the generator is drawn from the background thread and the callers of
+   * {@link #poll()} concurrently, so it's used under a lock unless it's known to be thread-safe.
+   *
+   * @param generator Generator of random strings
+   * @param pattern Pattern string
+   * @return Builder
+   */
+  public static Builder fromPattern(RandomStringGenerator generator, String pattern) {
+    final CompiledPattern compiled = generator.compilePattern(pattern).threadSafe();
+    return new Builder(pattern, compiled::generate, compiled::generateMany);
+  }
+
+  private TokenPool(Builder b, int lowWatermark) {
+    this.source = b.source;
+    this.generator = b.generator;
+    this.batchGenerator = b.batchGenerator;
+    this.lowWatermark = lowWatermark;
+    this.highWatermark = b.highWatermark;
+    this.batchSize = b.batchSize;
+    ring = new TokenRing(highWatermark);
+
+    fill();
+    refiller = b.threadFactory == null
+        ? newDaemonThread(this::runRefill)
+        : b.threadFactory.newThread(this::runRefill);
+    refiller.start();
+  }
+
+  private static Thread newDaemonThread(final Runnable runnable) {
+    Thread thread = new Thread(runnable, "random-string-token-pool-" + NEXT_ID.getAndIncrement());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Take a token without blocking. If the pool is empty, a token is generated inline.
+   *
+   * @return Random string
+   */
+  public String poll() {
+    final String token = ring.poll();
+    if (token == null) {
+      missCount.increment();
+      requestRefill();
+      return generator.get();
+    }
+    hitCount.increment();
+    if (ring.size() <= lowWatermark) {
+      requestRefill();
+    }
+    return token;
+  }
+
+  private void requestRefill() {
+    // only the first request since the last refill wakes up the refiller
+    if (!closed && refillRequestedNanos.compareAndSet(0, Math.max(1, System.nanoTime()))) {
+      LockSupport.unpark(refiller);
+    }
+  }
+
+  private void runRefill() {
+    while (!closed) {
+      final long requestedNanos = refillRequestedNanos.get();
+      if (requestedNanos == 0 && ring.size() > lowWatermark) {
+        // a request after this check leaves a permit, so the request isn't lost
+        LockSupport.park(this);
+        continue;
+      }
+      try {
+        refill(requestedNanos == 0 ? System.nanoTime() : requestedNanos);
+      } catch (RuntimeException e) {
+        // keep the thread alive and retry later; polls generate inline meanwhile
+        refillErrorCount.incrementAndGet();
+        LockSupport.parkNanos(this, REFILL_RETRY_NANOS);
+        continue;
+      }
+      refillRequestedNanos.compareAndSet(requestedNanos, 0);
+    }
+  }
+
+  /**
+   * Top up the ring to the high watermark, and record the lag since the request.
+   */
+  private void refill(final long requestedNanos) {
+    fill();
+
+    final long lagNanos = System.nanoTime() - requestedNanos;
+    refillCount.incrementAndGet();
+    totalRefillLagNanos.addAndGet(lagNanos);
+    maxRefillLagNanos.accumulateAndGet(lagNanos, Math::max);
+  }
+
+  /**
+   * Top up the ring to the high watermark by batches.
+   */
+  private void fill() {
+    String[] batch = new String[batchSize];
+    int numOfMissingTokens;
+    while (!closed && (numOfMissingTokens = highWatermark - ring.size()) > 0) {
+      if (numOfMissingTokens < batch.length) {
+        batch = new String[numOfMissingTokens];
+      }
+      batchGenerator.accept(batch);
+      int numOfOffered = 0;
+      while (numOfOffered < batch.length && ring.offer(batch[numOfOffered])) {
+        numOfOffered++;
+      }
+      refilledCount.addAndGet(numOfOffered);
+      if (numOfOffered < batch.length) {
+        break; // the ring is full
+      }
+    }
+  }
+
+  /**
+   * Get a snapshot of statistics of this pool.
+   *
+   * @return Statistics
+   */
+  public TokenPoolStats getStats() {
+    return new TokenPoolStats(ring.size(), lowWatermark, highWatermark, hitCount.sum(),
+        missCount.sum(), refilledCount.get(), refillCount.get(), totalRefillLagNanos.get(),
+        maxRefillLagNanos.get(), refillErrorCount.get());
+  }
+
+  /**
+   * Get the source regex or pattern of this pool.
+   *
+   * @return Source regex or pattern
+   */
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * Stop the background thread. Tokens which remain in the pool can still be polled, and tokens
+   * are generated inline after that.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark(refiller);
+  }
+}
@@ -0,0 +1,148 @@
+package net.moznion.random.string;
+
+/**
+ * Snapshot of statistics of a {@link TokenPool}.
+ *
+ * @author moznion
+ *
+ */
+public class TokenPoolStats {
+  private final int size;
+  private final int lowWatermark;
+  private final int highWatermark;
+  private final long hitCount;
+  private final long missCount;
+  private final long refilledCount;
+  private final long refillCount;
+  private final long totalRefillLagNanos;
+  private final long maxRefillLagNanos;
+  private final long refillErrorCount;
+
+  TokenPoolStats(int size, int lowWatermark, int highWatermark, long hitCount, long missCount,
+      long refilledCount, long refillCount, long totalRefillLagNanos, long maxRefillLagNanos,
+      long refillErrorCount) {
+    this.size = size;
+    this.lowWatermark = lowWatermark;
+    this.highWatermark = highWatermark;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.refilledCount = refilledCount;
+    this.refillCount = refillCount;
+    this.totalRefillLagNanos = totalRefillLagNanos;
+    this.maxRefillLagNanos = maxRefillLagNanos;
+    this.refillErrorCount = refillErrorCount;
+  }
+
+  /**
+   * Get approximate number of tokens in the pool.
+   *
+   * @return Number of tokens
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Get number of tokens at which refill is requested.
+   *
+   * @return Low watermark
+   */
+  public int getLowWatermark() {
+    return lowWatermark;
+  }
+
+  /**
+   * Get number of tokens up to which the pool is refilled.
+   *
+   * @return High watermark
+   */
+  public int getHighWatermark() {
+    return highWatermark;
+  }
+
+  /**
+   * Get number of polls which have been served from the pool.
+   *
+   * @return Number of hits
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Get number of polls which have generated a token inline because the pool was empty.
+   *
+   * @return Number of misses
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Get ratio of hits to all polls, or 0 if there has been no poll.
+   *
+   * @return Hit rate between 0 and 1
+   */
+  public double getHitRate() {
+    final long pollCount = hitCount + missCount;
+    return pollCount == 0 ? 0 : (double) hitCount / pollCount;
+  }
+
+  /**
+   * Get number of tokens which have been generated ahead of polls and added to the pool, including
+   * the tokens which are filled on build.
+   *
+   * @return Number of refilled tokens
+   */
+  public long getRefilledCount() {
+    return refilledCount;
+  }
+
+  /**
+   * Get number of refills in background, each of which tops up the pool to the high watermark. The
+   * fill on build isn't counted.
+   *
+   * @return Number of refills
+   */
+  public long getRefillCount() {
+    return refillCount;
+  }
+
+  /**
+   * Get mean time from a request of refill, when the pool reaches the low watermark, until the pool
+   * is topped up, in nanoseconds; or 0 if there has been no refill.
+   *
+   * @return Mean refill lag
+   */
+  public long getMeanRefillLagNanos() {
+    return refillCount == 0 ? 0 : totalRefillLagNanos / refillCount;
+  }
+
+  /**
+   * Get maximum time from a request of refill until the pool is topped up, in nanoseconds.
+   *
+   * @return Maximum refill lag
+   */
+  public long getMaxRefillLagNanos() {
+    return maxRefillLagNanos;
+  }
+
+  /**
+   * Get number of refills which have failed because generation has thrown an exception. The
+   * background thread retries after a short pause.
+   *
+   * @return Number of failed refills
+   */
+  public long getRefillErrorCount() {
+    return refillErrorCount;
+  }
+
+  @Override
+  public String toString() {
+    return "TokenPoolStats{size=" + size + ", lowWatermark=" + lowWatermark + ", highWatermark="
+        + highWatermark + ", hitCount=" + hitCount + ", missCount=" + missCount
+        + ", refilledCount=" + refilledCount + ", refillCount=" + refillCount
+        + ", meanRefillLagNanos=" + getMeanRefillLagNanos() + ", maxRefillLagNanos="
+        + maxRefillLagNanos + ", refillErrorCount=" + refillErrorCount + "}";
+  }
+}
@@ -0,0 +1,91 @@
+package net.moznion.random.string;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring of tokens for many producers and many consumers (Vyukov's bounded MPMC
+ * queue).
+ *
+ * <p>
+ * Each slot has a sequence number which tells whether it is ready to be written or read in the
+ * current lap, so producers and consumers only race on a CAS of the tail or the head and never
+ * wait for each other. Capacity is rounded up to a power of two.
+ */
+class TokenRing {
+  private final int mask;
+  private final AtomicReferenceArray<String> tokens;
+  private final AtomicLongArray sequences;
+  private final AtomicLong head = new AtomicLong(); // next position to poll
+  private final AtomicLong tail = new AtomicLong(); // next position to offer
+
+  TokenRing(int capacity) {
+    final int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    mask = size - 1;
+    tokens = new AtomicReferenceArray<>(size);
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Add a token, or return false without waiting if the ring is full.
+   */
+  boolean offer(final String token) {
+    long position = tail.get();
+    while (true) {
+      final int index = (int) position & mask;
+      final long diff = sequences.get(index) - position;
+      if (diff == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          tokens.lazySet(index, token);
+          sequences.lazySet(index, position + 1); // publishes the token
+          return true;
+        }
+        position = tail.get();
+      } else if (diff < 0) {
+        return false; // the slot hasn't been read since the last lap
+      } else {
+        position = tail.get(); // another producer has taken the slot
+      }
+    }
+  }
+
+  /**
+   * Take a token, or return null without waiting if the ring is empty.
+   */
+  String poll() {
+    long position = head.get();
+    while (true) {
+      final int index = (int) position & mask;
+      final long diff = sequences.get(index) - (position + 1);
+      if (diff == 0) {
+        if (head.compareAndSet(position, position + 1)) {
+          final String token = tokens.get(index);
+          tokens.lazySet(index, null);
+          sequences.lazySet(index, position + mask + 1); // frees the slot for the next lap
+          return token;
+        }
+        position = head.get();
+      } else if (diff < 0) {
+        return null; // the slot hasn't been written in this lap
+      } else {
+        position = head.get(); // another consumer has taken the slot
+      }
+    }
+  }
+
+  /**
+   * Get approximate number of tokens in the ring; it may be stale under concurrent access.
+   */
+  int size() {
+    final long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(size, capacity()));
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+}
@@ -0,0 +1,88 @@
+package net.moznion.random.string;
+
+import java.util.function.Supplier;
+
+/**
+ * Generator of random strings which never returns the same string twice, created by
+ * {@link RandomStringGenerator#uniqueByRegex(String)} or
+ * {@link RandomStringGenerator#uniqueFromPattern(String)}.
+ *
+ * <p>
+ * Generated strings are tracked as long keys in a compact hash set instead of a set of strings.
+ * When all strings of a pattern can be numbered by a long (e.g. {@code [A-Z0-9]{12}}), each string
+ * is encoded exactly and the number of possible strings is known, so exhaustion is detected
+ * precisely. Otherwise (e.g. strings of variable length) a 64-bit hash is tracked; distinct strings
+ * which share a hash are regarded as duplicates, which rarely drops a possible string but never
+ * returns a duplicate.
+ *
+ * <p>
+ * When a generated string has been returned already, another one is generated. If the number of
+ * retries for a string exceeds the limit, the output space is regarded as (nearly) exhausted and a
+ * RuntimeException is thrown.
+ *
+ * <p>
+ * Instance of this class is thread-safe; generation is serialized by a lock.
+ *
+ * @author moznion
+ *
+ */
+public class UniqueRandomStringGenerator {
+  static final int DEFAULT_MAX_RETRIES = 100;
+
+  private final String source;
+  private final Supplier<String> generator;
+  private final StringKeyEncoder encoder;
+  private final int maxRetries;
+  private final LongHashSet seen;
+  private long retryCount;
+  private int maxConsecutiveRetries;
+
+  UniqueRandomStringGenerator(String source, Supplier<String> generator,
+      StringKeyEncoder encoder, int maxRetries) {
+    if (maxRetries < 0) {
+      throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+    }
+    this.source = source;
+    this.generator = generator;
+    this.encoder = encoder;
+    this.maxRetries = maxRetries;
+    seen = new LongHashSet();
+  }
+
+  /**
+   * Generate a random string which hasn't been generated by this generator.
+   *
+   * @return Random string
+   * @throws RuntimeException If the output space is exhausted
+   */
+  public synchronized String generate() {
+    final long spaceSize = encoder.spaceSize();
+    if (spaceSize >= 0 && seen.size() >= spaceSize) {
+      throw new RuntimeException("All " + spaceSize + " strings have been generated: " + source);
+    }
+
+    for (int retries = 0;; retries++) {
+      String generated = generator.get();
+      if (seen.add(encoder.encode(generated))) {
+        retryCount += retries;
+        maxConsecutiveRetries = Math.max(maxConsecutiveRetries, retries);
+        return generated;
+      }
+      if (retries == maxRetries) {
+        retryCount += retries;
+        throw new RuntimeException("Output space is nearly exhausted; gave up after " + maxRetries
+            + " retries (" + seen.size() + " strings have been generated): " + source);
+      }
+    }
+  }
+
+  /**
+   * Get statistics of this generator.
+   *
+   * @return Statistics
+   */
+  public synchronized UniquenessStats getStats() {
+    return new UniquenessStats(seen.size(), encoder.spaceSize(), retryCount,
+        maxConsecutiveRetries, seen.bytesOfSlots());
+  }
+}
@@ -0,0 +1,86 @@
+package net.moznion.random.string;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sequence of random-looking strings without duplicates, created by
+ * {@link RandomStringGenerator#sequenceByRegex(String, long)} or
+ * {@link RandomStringGenerator#sequenceFromPattern(String, long)}.
+ *
+ * <p>
+ * All strings of a fixed-length pattern are numbered as a mixed-radix number whose digits are
+ * letters, and the sequence maps an index to a string through a keyed permutation of the numbers.
+ * So the i-th string is unique among the sequence without remembering generated strings, and
+ * {@link #indexOf(String)} recovers the index from a string. Sequences with the same pattern and
+ * key are identical, so several processes can generate disjoint ranges of indexes without
+ * coordination.
+ *
+ * <p>
+ * Strings are only random-looking; the permutation isn't cryptographically secure. Instance of this
+ * class is thread-safe.
+ *
+ * @author moznion
+ *
+ */
+public class UniqueSequence {
+  private final String source;
+  private final StringKeyEncoder.MixedRadixEncoder encoder;
+  private final FeistelPermutation permutation;
+  private final AtomicLong nextIndex;
+
+  UniqueSequence(String source, StringKeyEncoder.MixedRadixEncoder encoder, long key) {
+    if (encoder == null || encoder.spaceSize() > FeistelPermutation.MAX_SIZE) {
+      throw new RuntimeException("Output space must be fixed length and up to 2^62 strings: "
+          + source);
+    }
+    this.source = source;
+    this.encoder = encoder;
+    this.permutation = new FeistelPermutation(encoder.spaceSize(), key);
+    this.nextIndex = new AtomicLong();
+  }
+
+  /**
+   * Get the string at the index of this sequence.
+   *
+   * @param index Index between 0 (inclusive) and {@link #size()} (exclusive)
+   * @return String at the index
+   * @throws IndexOutOfBoundsException If the index is out of range
+   */
+  public String get(final long index) {
+    return encoder.decode(permutation.permute(index));
+  }
+
+  /**
+   * Get the index of the string in this sequence.
+   *
+   * @param s String which has been generated by this sequence
+   * @return Index of the string
+   * @throws IllegalArgumentException If the string can't be generated by the pattern
+   */
+  public long indexOf(final String s) {
+    return permutation.inverse(encoder.encode(s));
+  }
+
+  /**
+   * Get the next string of this sequence, starting from index 0.
+   *
+   * @return Next string
+   * @throws RuntimeException If all strings have been generated
+   */
+  public String next() {
+    final long index = nextIndex.getAndIncrement();
+    if (index >= size()) {
+      throw new RuntimeException("All " + size() + " strings have been generated: " + source);
+    }
+    return get(index);
+  }
+
+  /**
+   * Get number of strings in this sequence.
+   *
+   * @return Number of strings
+   */
+  public long size() {
+    return encoder.spaceSize();
+  }
+}
@@ -0,0 +1,86 @@
+package net.moznion.random.string;
+
+/**
+ * Snapshot of statistics of {@link UniqueRandomStringGenerator}.
+ *
+ * @author moznion
+ *
+ */
+public class UniquenessStats {
+  private final long generatedCount;
+  private final long spaceSize;
+  private final long retryCount;
+  private final int maxConsecutiveRetries;
+  private final long trackingBytes;
+
+  UniquenessStats(long generatedCount, long spaceSize, long retryCount, int maxConsecutiveRetries,
+      long trackingBytes) {
+    this.generatedCount = generatedCount;
+    this.spaceSize = spaceSize;
+    this.retryCount = retryCount;
+    this.maxConsecutiveRetries = maxConsecutiveRetries;
+    this.trackingBytes = trackingBytes;
+  }
+
+  /**
+   * Get number of strings which have been generated.
+   *
+   * @return Number of generated strings
+   */
+  public long getGeneratedCount() {
+    return generatedCount;
+  }
+
+  /**
+   * Get number of distinct strings which can be generated, or -1 if it is unknown.
+   *
+   * @return Size of the output space
+   */
+  public long getSpaceSize() {
+    return spaceSize;
+  }
+
+  /**
+   * Get ratio of generated strings to the output space, or NaN if the size of the output space is
+   * unknown. Retries increase sharply as this approaches 1.
+   *
+   * @return Ratio of used space
+   */
+  public double getUsedRatio() {
+    return spaceSize < 0 ? Double.NaN : (double) generatedCount / spaceSize;
+  }
+
+  /**
+   * Get total number of retries which have been caused by collisions with generated strings.
+   *
+   * @return Number of retries
+   */
+  public long getRetryCount() {
+    return retryCount;
+  }
+
+  /**
+   * Get maximum number of retries for a string.
+   *
+   * @return Maximum number of consecutive retries
+   */
+  public int getMaxConsecutiveRetries() {
+    return maxConsecutiveRetries;
+  }
+
+  /**
+   * Get number of bytes which are used to track generated strings.
+   *
+   * @return Number of bytes
+   */
+  public long getTrackingBytes() {
+    return trackingBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "UniquenessStats{generatedCount=" + generatedCount + ", spaceSize=" + spaceSize
+        + ", retryCount=" + retryCount + ", maxConsecutiveRetries=" + maxConsecutiveRetries
+        + ", trackingBytes=" + trackingBytes + "}";
+  }
+}
@@ -2,46 +2,69 @@ package net.moznion.random.string;
 
 import lombok.Getter;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 class UserDefinedLetterPickerScanner {
   @Getter
   public static class ScannedUserDefinedPicker {
     private final int cursor;
     private final String key;
-    private final List<String> bounds;
+    private final int[] ranges;
 
     public ScannedUserDefinedPicker(
-        final int cursorForScanning, final String key, final List<String> bounds) {
+        final int cursorForScanning, final String key, final int[] ranges) {
       this.cursor = cursorForScanning;
       this.key = key;
-      this.bounds = bounds;
+      this.ranges = ranges;
     }
   }
 
-  public static ScannedUserDefinedPicker scan(final String[] regexCharacters, final int index) {
-    String key = "";
-    String character;
-    List<String> bounds = new ArrayList<>();
-
-    int i = index;
-    while (!(character = regexCharacters[++i]).equals("]")) {
-      if (character.equals("-") && !bounds.isEmpty()) {
-        String beginCharacter = bounds.get(bounds.size() - 1); // take from tail
-        String endCharacter = regexCharacters[++i]; // take from after "-"
-
-        key += beginCharacter + "-" + endCharacter;
-
-        bounds.add(endCharacter);
-      } else {
-        if (String.valueOf(character).matches("\\W")) {
-          throw new RuntimeException("'" + character + "'" + "will be treated literally inside []");
-        }
-        bounds.add(character);
+  /**
+   * Scan a character class which begins at index ({@code [}). Cursor of the result points
+   * {@code ]} which closes the class. Ranges of the result are pairs of the first and the last code
+   * points of each range; a single character is a range of itself.
+   */
+  public static ScannedUserDefinedPicker scan(final String regex, final int index) {
+    int[] ranges = new int[8];
+    int numOfBounds = 0;
+
+    int i = index + 1;
+    int begin;
+    while ((begin = regex.codePointAt(i)) != ']') {
+      i += Character.charCount(begin);
+      checkCharacter(begin);
+
+      int end = begin;
+      if (regex.charAt(i) == '-' && regex.charAt(i + 1) != ']') {
+        end = regex.codePointAt(i + 1); // take from after "-"
+        checkCharacter(end);
+        i += 1 + Character.charCount(end);
       }
+
+      if (numOfBounds == ranges.length) {
+        ranges = Arrays.copyOf(ranges, numOfBounds * 2);
+      }
+      ranges[numOfBounds++] = begin;
+      ranges[numOfBounds++] = end;
     }
 
-    return new ScannedUserDefinedPicker(i, key, bounds);
+    return new ScannedUserDefinedPicker(i, regex.substring(index + 1, i),
+        Arrays.copyOf(ranges, numOfBounds));
+  }
+
+  /**
+   * Characters other than word characters are rejected in ASCII, since they might have special
+   * meanings; non-ASCII characters are taken literally.
+   */
+  private static void checkCharacter(final int codePoint) {
+    if (codePoint <= 0x7f && !isWordCharacter((char) codePoint)) {
+      throw new RuntimeException(
+          "'" + (char) codePoint + "'" + "will be treated literally inside []");
+    }
+  }
+
+  private static boolean isWordCharacter(final char character) {
+    return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z')
+        || (character >= '0' && character <= '9') || character == '_';
   }
 }
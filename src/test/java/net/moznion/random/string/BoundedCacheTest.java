@@ -0,0 +1,103 @@
+package net.moznion.random.string;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BoundedCacheTest {
+  @Test
+  public void shouldEvictLeastRecentlyUsedEntry() {
+    BoundedCache<String, String> cache = new BoundedCache<>(2);
+    cache.get("a", k -> k + "!");
+    cache.get("b", k -> k + "!");
+    cache.get("a", k -> "unexpected"); // "b" becomes least recently used
+    cache.get("c", k -> k + "!");
+
+    assertEquals("a!", cache.get("a", k -> "unexpected"));
+    assertEquals("reloaded", cache.get("b", k -> "reloaded"));
+
+    CacheStats stats = cache.stats();
+    assertEquals(2, stats.getCapacity());
+    assertEquals(2, stats.getSize());
+    assertEquals(2, stats.getHitCount());
+    assertEquals(4, stats.getMissCount());
+    assertEquals(2, stats.getEvictionCount());
+  }
+
+  @Test
+  public void shouldNotExceedCapacityWhichIsNotDivisibleBySegments() {
+    final List<Integer> evicted = new ArrayList<>();
+    final BoundedCache<Integer, Integer> cache = new BoundedCache<>(17,
+        new BoundedCache.Listener() {
+          @Override
+          public void onHit() {
+          }
+
+          @Override
+          public void onMiss() {
+          }
+
+          @Override
+          public void onEviction() {
+            evicted.add(1);
+          }
+        });
+    for (int i = 0; i < 1000; i++) {
+      cache.get(i, k -> k);
+      assertTrue(cache.stats().getSize() <= 17);
+    }
+    assertEquals(17, cache.stats().getSize());
+    assertEquals(1000 - 17, cache.stats().getEvictionCount());
+    assertEquals(1000 - 17, evicted.size());
+  }
+
+  @Test
+  public void shouldNotCacheWhenCapacityIsZero() {
+    BoundedCache<String, Object> cache = new BoundedCache<>(0);
+    assertNotSame(cache.get("a", k -> new Object()), cache.get("a", k -> new Object()));
+    assertEquals(0, cache.stats().getSize());
+    assertEquals(2, cache.stats().getMissCount());
+  }
+
+  @Test
+  public void shouldKeepCapacityUnderConcurrentAccess() throws Exception {
+    final BoundedCache<Integer, Integer> cache = new BoundedCache<>(256);
+    final Object shared = new Object();
+    final BoundedCache<String, Object> sharedCache = new BoundedCache<>(256);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int offset = t * 10000;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 10000; i++) {
+            int key = offset + i;
+            assertEquals(Integer.valueOf(key * 2), cache.get(key, k -> k * 2));
+            assertSame(shared, sharedCache.get("shared", k -> shared));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    CacheStats stats = cache.stats();
+    assertTrue(stats.toString(), stats.getSize() <= 256);
+    assertEquals(80000, stats.getMissCount());
+    assertEquals(80000 - stats.getSize(), stats.getEvictionCount());
+    assertEquals(80000, sharedCache.stats().getHitCount() + sharedCache.stats().getMissCount());
+  }
+}
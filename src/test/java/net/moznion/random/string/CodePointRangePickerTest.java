@@ -0,0 +1,53 @@
+package net.moznion.random.string;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class CodePointRangePickerTest {
+  @Test
+  public void shouldPickUniformlyOverMergedIntervals() {
+    // overlapping ranges are merged, so each code point is picked equally
+    CodePointRangePicker picker =
+        new CodePointRangePicker(new int[] {0x3000, 0x30ff, 0x3080, 0x31ff, 0x10000, 0x100ff});
+    assertNull(picker.getLetterPicker());
+    assertEquals(0x200 + 0x100, picker.size());
+
+    RandomSource random = RandomSource.of(new Random(1));
+    int[] counts = new int[3];
+    for (int i = 0; i < 30000; i++) {
+      int codePoint = picker.pickCodePoint(random);
+      if (codePoint >= 0x10000) {
+        assertTrue(codePoint <= 0x100ff);
+        counts[2]++;
+      } else {
+        assertTrue(codePoint >= 0x3000 && codePoint <= 0x31ff);
+        counts[codePoint < 0x3100 ? 0 : 1]++;
+      }
+    }
+    for (int count : counts) {
+      assertTrue(String.valueOf(count), count > 9000 && count < 11000);
+    }
+  }
+
+  @Test
+  public void shouldSkipSurrogates() {
+    CodePointRangePicker picker = new CodePointRangePicker(new int[] {0xd7ff, 0xe000});
+    assertEquals(2, picker.size());
+    assertNotNull(picker.getLetterPicker());
+
+    StringBuilder sb = new StringBuilder();
+    picker.appendTo(sb, 1000, RandomSource.of(new Random()));
+    assertTrue(sb.toString().matches("[\ud7ff\ue000]{1000}"));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void shouldRejectOnlySurrogates() {
+    new CodePointRangePicker(new int[] {0xd800, 0xdfff});
+  }
+}
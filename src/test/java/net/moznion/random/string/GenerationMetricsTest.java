@@ -0,0 +1,84 @@
+package net.moznion.random.string;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class GenerationMetricsTest {
+  @Test
+  public void shouldCountGeneration() {
+    GenerationMetrics metrics = new GenerationMetrics();
+    RandomStringGenerator generator = RandomStringGenerator.builder()
+        .setListener(metrics)
+        .build();
+
+    generator.generateByRegex("\\d{8}");
+    generator.generateByRegex("\\d{8}");
+    generator.compile("[a-c]{4}").generateMany(new String[10]);
+    generator.generateFromPattern("CCnn");
+
+    assertEquals(3, metrics.getCompileCount());
+    assertEquals(4, metrics.getGenerateCallCount());
+    assertEquals(13, metrics.getGeneratedStringCount());
+    assertEquals(8 + 8 + 40 + 4, metrics.getGeneratedCharCount());
+    assertTrue(metrics.getRandomDrawCount() > 0);
+
+    assertEquals(2, metrics.getGenerateCallCountBySource().get("\\d{8}").longValue());
+    assertEquals(1, metrics.getGenerateCallCountBySource().get("CCnn").longValue());
+    long median = metrics.getMedianLatencyNanosBySource().get("\\d{8}");
+    assertTrue(median > 0);
+    assertTrue(metrics.getP99LatencyNanosBySource().get("\\d{8}") >= median);
+
+    metrics.reset();
+    assertEquals(0, metrics.getGenerateCallCount());
+    assertTrue(metrics.getGenerateCallCountBySource().isEmpty());
+  }
+
+  @Test
+  public void shouldCountCacheAccesses() {
+    GenerationMetrics metrics = new GenerationMetrics();
+    RandomStringGenerator generator = RandomStringGenerator.builder()
+        .setRegexCacheCapacity(1)
+        .setListener(metrics)
+        .build();
+
+    generator.generateByRegex("[a-c]");
+    generator.generateByRegex("[a-c]");
+    generator.generateByRegex("[x-z]");
+
+    assertEquals(1, metrics.getRegexCacheHitCount());
+    assertEquals(2, metrics.getRegexCacheMissCount());
+    assertEquals(1, metrics.getRegexCacheEvictionCount());
+    assertEquals(2, metrics.getCharacterClassCacheMissCount());
+    assertEquals(0, metrics.getPatternCacheMissCount());
+
+    generator.generateFromPattern("cn");
+    generator.generateFromPattern("cn");
+    assertEquals(1, metrics.getPatternCacheHitCount());
+    assertEquals(1, metrics.getPatternCacheMissCount());
+    assertEquals(0, metrics.getPatternCacheEvictionCount());
+    assertEquals(1, metrics.getRegexCacheHitCount());
+  }
+
+  @Test
+  public void shouldBeRegisteredAsMBean() throws Exception {
+    GenerationMetrics metrics = new GenerationMetrics();
+    String name = "net.moznion.random.string:type=GenerationMetrics,name=test";
+    metrics.registerMBean(name);
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName(name);
+    try {
+      RandomStringGenerator.builder().setListener(metrics).build().generateByRegex("a\\d");
+      assertEquals(1L, server.getAttribute(objectName, "GenerateCallCount"));
+    } finally {
+      server.unregisterMBean(objectName);
+    }
+  }
+}
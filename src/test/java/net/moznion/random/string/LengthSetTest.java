@@ -0,0 +1,36 @@
+package net.moznion.random.string;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class LengthSetTest {
+  @Test
+  public void shouldComputeClosureAsBruteForce() {
+    Random random = new Random(1);
+    for (int trial = 0; trial < 200; trial++) {
+      int limit = random.nextInt(300);
+      LengthSet lengths = new LengthSet(limit);
+      int numOfLengths = 1 + random.nextInt(4);
+      for (int i = 0; i < numOfLengths; i++) {
+        lengths.add(random.nextInt(Math.min(limit, 140) + 1));
+      }
+
+      boolean[] reachable = new boolean[limit + 1];
+      reachable[0] = true;
+      for (int l = 1; l <= limit; l++) {
+        for (int b = 1; b <= l; b++) {
+          reachable[l] |= lengths.contains(b) && reachable[l - b];
+        }
+      }
+
+      LengthSet closure = lengths.closure();
+      for (int l = 0; l <= limit + 70; l++) {
+        assertEquals("length " + l + " of trial " + trial, l <= limit && reachable[l],
+            closure.contains(l));
+      }
+    }
+  }
+}
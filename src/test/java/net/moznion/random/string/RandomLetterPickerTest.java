@@ -0,0 +1,187 @@
+package net.moznion.random.string;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class RandomLetterPickerTest {
+  @Test
+  public void shouldPickOnlyDefinedLetters() {
+    RandomLetterPicker picker = RandomLetterPicker.builder()
+        .add("a")
+        .add("b")
+        .add("c")
+        .build();
+    RandomSource random = RandomSource.of(new Random());
+
+    for (int i = 0; i < 100; i++) {
+      char c = picker.pickChar(random);
+      assertTrue(c >= 'a' && c <= 'c');
+    }
+
+    StringBuilder sb = new StringBuilder("x");
+    picker.appendTo(sb, random);
+    assertTrue(sb.toString().matches("x[abc]"));
+
+    // filled in bulk after the existing content
+    picker.appendTo(sb, 1000, random);
+    assertTrue(sb.toString().matches("x[abc]{1001}"));
+
+    char[] buffer = new char[10];
+    picker.fill(buffer, 2, 6, random);
+    assertEquals(0, buffer[0]);
+    assertEquals(0, buffer[1]);
+    assertTrue(new String(buffer, 2, 6).matches("[abc]{6}"));
+    assertEquals(0, buffer[8]);
+    assertEquals(0, buffer[9]);
+  }
+
+  @Test
+  public void shouldConstructByCodePointIntervals() {
+    // only the first numOfIntervals intervals are used
+    RandomLetterPicker picker = RandomLetterPicker.constructByCodePointIntervals(
+        new int[][] {{'a', 'c'}, {'X', 'Z'}, {'0', '9'}}, 2);
+    assertArrayEquals("abcXYZ".toCharArray(), picker.getLetters());
+    char[] buffer = new char[1000];
+    picker.fill(buffer, 0, buffer.length, RandomSource.of(new Random()));
+    assertTrue(new String(buffer).matches("[a-cX-Z]+"));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void shouldRejectMultiCharacterLetter() {
+    RandomLetterPicker.builder().add("ab").build();
+  }
+
+  @Test
+  public void shouldPickByWeights() {
+    RandomLetterPicker picker = RandomLetterPicker.builder()
+        .add("a", 6)
+        .add("b", 3)
+        .add("c", 1)
+        .add("d", 0)
+        .build();
+    CountingRandomSource random = new CountingRandomSource(RandomSource.of(new Random()));
+
+    char[] buffer = new char[100000];
+    picker.fill(buffer, 0, buffer.length, random);
+    // a single random draw per letter
+    assertEquals(buffer.length, random.numOfDraws);
+    int[] counts = new int[4];
+    for (char c : buffer) {
+      counts[c - 'a']++;
+    }
+    assertEquals(60000, counts[0], 1500);
+    assertEquals(30000, counts[1], 1500);
+    assertEquals(10000, counts[2], 1500);
+    assertEquals(0, counts[3]);
+    assertArrayEquals(new char[] {'a', 'b', 'c'}, picker.getDistinctLetters());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNegativeWeight() {
+    RandomLetterPicker.builder().add("a", 1).add("b", -1).build();
+  }
+
+  @Test
+  public void shouldFillUniformlyWithFewRandomDraws() {
+    RandomLetterPicker picker = RandomLetterPicker.builder()
+        .addAllByEnum(DigitLetter.class)
+        .build();
+    CountingRandomSource random = new CountingRandomSource(RandomSource.of(new Random()));
+
+    char[] buffer = new char[100000];
+    picker.fill(buffer, 0, buffer.length, random);
+    int[] counts = new int[10];
+    for (char c : buffer) {
+      counts[c - '0']++;
+    }
+    for (int count : counts) {
+      assertTrue(Arrays.toString(counts), count > 9500 && count < 10500);
+    }
+    // 8 bytes per word and 250/256 of them are accepted
+    assertTrue(random.numOfDraws < buffer.length / 7);
+
+    StringBuilder sb = new StringBuilder();
+    picker.appendTo(sb, 1000, random);
+    assertTrue(sb.toString().matches("[0-9]{1000}"));
+  }
+
+  @Test
+  public void shouldFillUniformlyInBulk() {
+    RandomSource random = RandomSource.of(new Random());
+
+    // 256 isn't divisible by 3, so some bytes are rejected
+    RandomLetterPicker picker = RandomLetterPicker.builder().add("x").add("y").add("z").build();
+    char[] buffer = new char[90000];
+    picker.fill(buffer, 0, buffer.length, random);
+    int[] counts = new int[3];
+    for (char c : buffer) {
+      counts[c - 'x']++;
+    }
+    for (int count : counts) {
+      assertTrue(Arrays.toString(counts), count > 29000 && count < 31000);
+    }
+
+    RandomLetterPicker salt = new RandomLetterPickers().getSalt();
+    StringBuilder sb = new StringBuilder();
+    salt.appendTo(sb, 64000, random);
+    assertEquals(64000, sb.length());
+    int[] saltCounts = new int[128];
+    for (int i = 0; i < sb.length(); i++) {
+      saltCounts[sb.charAt(i)]++;
+    }
+    for (int i = 0; i < saltCounts.length; i++) {
+      if (String.valueOf((char) i).matches("[A-Za-z0-9./]")) {
+        assertTrue(i + ": " + saltCounts[i], saltCounts[i] > 800 && saltCounts[i] < 1200);
+      } else {
+        assertEquals(0, saltCounts[i]);
+      }
+    }
+  }
+
+  @Test
+  public void shouldShareRandomWordsBetweenPicks() {
+    CountingRandomSource random = new CountingRandomSource(RandomSource.of(new Random()));
+    RandomSource batched = new BatchedRandomSource(random);
+    int[] counts = new int[64];
+    for (int i = 0; i < 64000; i++) {
+      counts[batched.nextInt(64)]++;
+    }
+    for (int count : counts) {
+      assertTrue(Arrays.toString(counts), count > 800 && count < 1200);
+    }
+    assertEquals(6400, random.numOfDraws);
+  }
+
+  private static class CountingRandomSource implements RandomSource {
+    private final RandomSource source;
+    private int numOfDraws;
+
+    CountingRandomSource(RandomSource source) {
+      this.source = source;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+      numOfDraws++;
+      return source.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+      numOfDraws++;
+      return source.nextLong();
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+      numOfDraws++;
+      source.nextBytes(bytes);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package net.moznion.random.string;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RandomSourceTest {
+  private static final List<RandomSource> SOURCES = Arrays.asList(
+      RandomSource.of(new Random()),
+      RandomSource.of(new SplittableRandom()),
+      RandomSource.of(new SecureRandom()),
+      RandomSource.threadLocal());
+
+  @Test
+  public void shouldDrawUniformlyWithinBound() {
+    for (RandomSource source : SOURCES) {
+      int[] counts = new int[10];
+      for (int i = 0; i < 100000; i++) {
+        counts[source.nextInt(10)]++;
+      }
+      for (int count : counts) {
+        assertTrue(source.getClass() + ": " + Arrays.toString(counts),
+            count > 9000 && count < 11000);
+      }
+
+      int[] ints = new int[1000];
+      source.ints(ints, 10, 900, 3);
+      for (int i = 10; i < 910; i++) {
+        assertTrue(ints[i] >= 0 && ints[i] < 3);
+      }
+    }
+  }
+
+  @Test
+  public void shouldFillBytes() {
+    for (RandomSource source : SOURCES) {
+      for (int length : new int[] {1, 7, 8, 100, 511, 512, 2048}) {
+        byte[] bytes = new byte[length];
+        source.nextBytes(bytes);
+        if (length >= 100) {
+          int numOfZeros = 0;
+          for (byte b : bytes) {
+            if (b == 0) {
+              numOfZeros++;
+            }
+          }
+          assertTrue(source.getClass().toString(), numOfZeros < length / 10);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void shouldAdaptByTypeOfRandom() {
+    assertTrue(RandomSource.of((Random) new SecureRandom())
+        instanceof RandomSources.BufferedSecureRandomSource);
+    assertEquals(RandomSource.threadLocal(), RandomSource.of(ThreadLocalRandom.current()));
+  }
+
+  @Test
+  public void shouldBeUsedByGenerator() {
+    for (RandomSource source : SOURCES) {
+      RandomStringGenerator generator = new RandomStringGenerator(source);
+      assertTrue(generator.generateByRegex("[a-f]{16}\\d+").matches("[a-f]{16}[0-9]+"));
+      assertTrue(generator.generateFromPattern("CCnn").matches("[A-Z]{2}[0-9]{2}"));
+    }
+  }
+
+  @Test
+  public void shouldGenerateSameStringsFromSameSeedOfSplittableRandom() {
+    RandomStringGenerator generator1 = new RandomStringGenerator(
+        RandomSource.of(new SplittableRandom(42)));
+    RandomStringGenerator generator2 = new RandomStringGenerator(
+        RandomSource.of(new SplittableRandom(42)));
+    for (int i = 0; i < 100; i++) {
+      assertEquals(generator1.generateByRegex("\\w+"), generator2.generateByRegex("\\w+"));
+    }
+  }
+}
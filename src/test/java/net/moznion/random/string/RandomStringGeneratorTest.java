@@ -1,12 +1,41 @@
 package net.moznion.random.string;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class RandomStringGeneratorTest {
   @Test
@@ -20,6 +49,34 @@ public class RandomStringGeneratorTest {
     assertTrue(patternToProve.matcher(randomString).find());
   }
 
+  @Test
+  public void shouldGenerateRandomStringFromPatternIntoBuffer() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    {
+      StringBuilder sb = new StringBuilder("prefix-");
+      generator.generateFromPattern("CCnn", sb);
+      assertTrue(sb.toString().matches("prefix-[A-Z]{2}[0-9]{2}"));
+    }
+    {
+      CharBuffer buffer = CharBuffer.allocate(8);
+      generator.generateFromPattern("ccnn", buffer);
+      buffer.flip();
+      assertTrue(buffer.toString().matches("[a-z]{2}[0-9]{2}"));
+    }
+    {
+      CompiledPattern compiled = generator.compilePattern("sss");
+      assertEquals(3, compiled.getLength());
+      for (int i = 0; i < 100; i++) {
+        assertTrue(compiled.generate().matches("[A-Za-z0-9./]{3}"));
+      }
+    }
+  }
+
+  @Test(expected = BufferOverflowException.class)
+  public void shouldOccurExceptionWhenBufferIsInsufficient() {
+    new RandomStringGenerator().generateFromPattern("cccc", CharBuffer.allocate(3));
+  }
+
   @Test(expected = RuntimeException.class)
   public void shouldOccurExceptionWhenItIsWithInvalidPatternChar() {
     new RandomStringGenerator().generateFromPattern("cCn?.sb");
@@ -135,4 +192,619 @@ public class RandomStringGeneratorTest {
             + "a\\{0,3}.[ \t].[0-9][a-zA-Z]X$");
     assertTrue(patternToProve.matcher(randomString).find());
   }
+
+  @Test
+  public void shouldGenerateRandomStringFromCompiledRegex() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    CompiledRegex compiled =
+        generator.compile("\\w+\\d*\\W\\D{0,3}a\\{0,3}.\\s\\S[0-9][a-zA-Z]X");
+    Pattern patternToProve =
+        Pattern.compile("^[a-zA-Z0-9_]+[0-9]*[~`!@$%^&*()\\-+={}\\[\\]|\\\\:;\"'.<>?/#,]"
+            + "[a-zA-Z0-9~`!@$%^&*()\\-_+={}\\[\\]|\\\\:;\"'.<>?/#,]{0,3}"
+            + "a\\{0,3}.[ \t].[0-9][a-zA-Z]X$");
+    for (int i = 0; i < 100; i++) {
+      assertTrue(patternToProve.matcher(compiled.generate()).find());
+    }
+  }
+
+  @Test
+  public void shouldRandomizeQuantifiersOnEachGenerationOfCompiledRegex() {
+    CompiledRegex compiled = new RandomStringGenerator(new Random(42), 10).compile("a{1,10}");
+    Set<Integer> lengths = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      lengths.add(compiled.generate().length());
+    }
+    assertEquals(10, lengths.size());
+  }
+
+  @Test
+  public void shouldNotMixUpCharacterClasses() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    for (int i = 0; i < 100; i++) {
+      assertTrue(generator.generateByRegex("[ab][xy]").matches("[ab][xy]"));
+    }
+  }
+
+  @Test
+  public void shouldGenerateSameStringsFromSameSeed() {
+    RandomStringGenerator generator1 = new RandomStringGenerator(new Random(1));
+    RandomStringGenerator generator2 = new RandomStringGenerator(new Random(1));
+    for (int i = 0; i < 100; i++) {
+      assertEquals(generator1.generateByRegex("[a-z]{20}\\d+"),
+          generator2.generateByRegex("[a-z]{20}\\d+"));
+      assertEquals(generator1.generateFromPattern("Ccn!.sb"),
+          generator2.generateFromPattern("Ccn!.sb"));
+    }
+  }
+
+  @Test
+  public void shouldBeSharedBetweenThreads() throws Exception {
+    final RandomStringGenerator generator = RandomStringGenerator.concurrent();
+    final int numOfThreads = 8;
+    final int numOfIterations = 2000;
+
+    final String[] ranges = new String[13];
+    for (int i = 0; i < ranges.length; i++) {
+      ranges[i] = (char) ('a' + i * 2) + "-" + (char) ('a' + i * 2 + 1);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+    try {
+      final CountDownLatch latch = new CountDownLatch(1);
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < numOfThreads; t++) {
+        final int offset = t;
+        futures.add(executor.submit(() -> {
+          latch.await();
+          int numOfGenerated = 0;
+          for (int i = 0; i < numOfIterations; i++) {
+            String range = ranges[(i + offset) % ranges.length];
+            String randomString = generator.generateByRegex("[" + range + "]{8}\\d");
+            assertTrue(randomString.matches("[" + range + "]{8}[0-9]"));
+            numOfGenerated++;
+          }
+          return numOfGenerated;
+        }));
+      }
+      latch.countDown();
+
+      int total = 0;
+      for (Future<Integer> future : futures) {
+        total += future.get();
+      }
+      assertEquals(numOfThreads * numOfIterations, total);
+    } finally {
+      executor.shutdown();
+    }
+
+    for (String range : ranges) {
+      assertTrue(generator.generateByRegex("[" + range + "]{100}").matches("[" + range + "]{100}"));
+    }
+  }
+
+  @Test
+  public void shouldGenerateManyStrings() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    {
+      List<String> randomStrings =
+          generator.generateManyByRegex("[a-f]{4}\\d+", 1000).collect(Collectors.toList());
+      assertEquals(1000, randomStrings.size());
+      randomStrings.forEach(s -> assertTrue(s.matches("[a-f]{4}[0-9]+")));
+    }
+    {
+      String[] randomStrings = new String[1000];
+      generator.generateManyByRegex("[a-f]{4}\\d+", randomStrings);
+      for (String randomString : randomStrings) {
+        assertTrue(randomString.matches("[a-f]{4}[0-9]+"));
+      }
+    }
+    {
+      List<String> randomStrings = new ArrayList<>();
+      generator.forEachByRegex("[a-f]{4}\\d+", 1000, s -> randomStrings.add(s.toString()));
+      assertEquals(1000, randomStrings.size());
+      randomStrings.forEach(s -> assertTrue(s.matches("[a-f]{4}[0-9]+")));
+    }
+    {
+      assertEquals(1000, generator.generateManyFromPattern("CCnn", 1000)
+          .filter(s -> s.matches("[A-Z]{2}[0-9]{2}"))
+          .count());
+      String[] randomStrings = new String[1000];
+      generator.generateManyFromPattern("CCnn", randomStrings);
+      for (String randomString : randomStrings) {
+        assertTrue(randomString.matches("[A-Z]{2}[0-9]{2}"));
+      }
+      List<String> consumed = new ArrayList<>();
+      generator.forEachFromPattern("CCnn", 1000, s -> consumed.add(s.toString()));
+      assertEquals(1000, consumed.size());
+      consumed.forEach(s -> assertTrue(s.matches("[A-Z]{2}[0-9]{2}")));
+    }
+    {
+      CompiledPattern compiled = generator.compilePattern("CCnn");
+      assertEquals(1000, compiled.generateMany(1000)
+          .filter(s -> s.matches("[A-Z]{2}[0-9]{2}"))
+          .count());
+
+      String[] randomStrings = new String[1000];
+      compiled.generateMany(randomStrings);
+      for (String randomString : randomStrings) {
+        assertTrue(randomString.matches("[A-Z]{2}[0-9]{2}"));
+      }
+
+      List<String> consumed = new ArrayList<>();
+      compiled.forEach(1000, s -> consumed.add(s.toString()));
+      assertEquals(1000, consumed.size());
+      consumed.forEach(s -> assertTrue(s.matches("[A-Z]{2}[0-9]{2}")));
+    }
+  }
+
+  @Test
+  public void shouldGenerateInParallelReproducibly() {
+    CompiledRegex compiled = new RandomStringGenerator().compile("[a-f]{4}\\d+\\w*");
+    ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+    ForkJoinPool multiThreadPool = new ForkJoinPool(4);
+    try {
+      String[] expected = compiled.generateParallel(10000, 42L, singleThreadPool);
+      assertEquals(10000, expected.length);
+      for (String randomString : expected) {
+        assertTrue(randomString.matches("[a-f]{4}[0-9]+[A-Za-z0-9_]*"));
+      }
+
+      assertArrayEquals(expected, compiled.generateParallel(10000, 42L, multiThreadPool));
+      assertArrayEquals(expected, compiled.generateParallel(10000, 42L));
+      assertFalse(Arrays.equals(expected, compiled.generateParallel(10000, 43L)));
+    } finally {
+      singleThreadPool.shutdown();
+      multiThreadPool.shutdown();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void shouldCompileThousandsOfQuantifiersInLinearTime() {
+    // without the cache, compile() below actually compiles the regex
+    RandomStringGenerator generator = RandomStringGenerator.builder()
+        .setRegexCacheCapacity(0)
+        .build();
+    String unit = "a{1,2}\\d*[x-z]+\\w?b{3}";
+
+    assertTrue(generator.generateByRegex(repeat(unit, 100))
+        .matches("(a{1,2}[0-9]*[x-z]+[A-Za-z0-9_]?bbb){100}"));
+
+    // 160,000 quantifiers; quadratic compilation wouldn't finish within the timeout
+    CompiledRegex compiled = generator.compile(repeat(unit, 32000));
+    assertEquals(5 * 32000, compiled.getLengthBounds().getMin());
+  }
+
+  @Test
+  public void shouldCacheCompiledPatterns() {
+    RandomStringGenerator generator = RandomStringGenerator.builder()
+        .setPatternCacheCapacity(1)
+        .build();
+
+    CompiledPattern compiled = generator.compilePattern("Ccn");
+    assertSame(compiled, generator.compilePattern("Ccn"));
+    assertTrue(generator.generateFromPattern("Ccn").matches("[A-Z][a-z][0-9]"));
+    assertTrue(generator.generateFromPattern("nn").matches("[0-9]{2}"));
+
+    CacheStats patternCacheStats = generator.getPatternCacheStats();
+    assertEquals(2, patternCacheStats.getHitCount());
+    assertEquals(2, patternCacheStats.getMissCount());
+    assertEquals(1, patternCacheStats.getEvictionCount());
+    assertEquals(1, patternCacheStats.getSize());
+    assertEquals(0, generator.getRegexCacheStats().getMissCount());
+  }
+
+  @Test
+  public void shouldCacheCompiledRegexes() {
+    RandomStringGenerator generator = RandomStringGenerator.builder()
+        .setRegexCacheCapacity(2)
+        .setCharacterClassCacheCapacity(1)
+        .build();
+
+    CompiledRegex compiled = generator.compile("[a-c]{3}");
+    assertSame(compiled, generator.compile("[a-c]{3}"));
+    generator.generateByRegex("[a-c]{3}");
+    generator.generateByRegex("[x-z]{3}");
+    generator.generateByRegex("\\d{3}");
+
+    CacheStats regexCacheStats = generator.getRegexCacheStats();
+    assertEquals(2, regexCacheStats.getHitCount());
+    assertEquals(3, regexCacheStats.getMissCount());
+    assertEquals(1, regexCacheStats.getEvictionCount());
+    assertEquals(2, regexCacheStats.getSize());
+
+    CacheStats characterClassCacheStats = generator.getCharacterClassCacheStats();
+    assertEquals(2, characterClassCacheStats.getMissCount());
+    assertEquals(1, characterClassCacheStats.getEvictionCount());
+    assertEquals(1, characterClassCacheStats.getSize());
+
+    // recompiled according to the new number of upper limit
+    generator.setNumOfUpperLimit(0);
+    assertEquals("XX", generator.generateByRegex("X.*X"));
+    generator.setNumOfUpperLimit(3);
+    assertTrue(generator.generateByRegex("X.*X").matches("X.{0,3}X"));
+  }
+
+  @Test
+  public void shouldGenerateStringOfExactLength() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+
+    String longString = generator.generateByRegex("\\w+", 4096);
+    assertEquals(4096, longString.length());
+    assertTrue(longString.matches("\\w+"));
+
+    CompiledRegex compiled = generator.compile("[a-c]{2,5}x\\d*");
+    for (int length = 3; length < 20; length++) {
+      String generated = compiled.generate(length);
+      assertEquals(length, generated.length());
+      assertTrue(generated, generated.matches("[a-c]{2,5}x\\d*"));
+    }
+
+    assertEquals("aabccc",
+        generator.generateByRegex("a{2}b?c{3}", LengthDistribution.exactly(6)));
+  }
+
+  @Test
+  public void shouldComputeLengthBounds() {
+    RandomStringGenerator generator = new RandomStringGenerator(10);
+    LengthBounds bounds = generator.lengthBounds("ab\\d{2}x*[a-c]{1,3}");
+    assertEquals(5, bounds.getMin());
+    assertEquals(17, bounds.getMax());
+    assertEquals(11.0, bounds.getExpected(), 0.0);
+
+    for (int i = 0; i < 100; i++) {
+      int length = generator.generateByRegex("ab\\d{2}x*[a-c]{1,3}").length();
+      assertTrue(length >= bounds.getMin() && length <= bounds.getMax());
+    }
+    assertEquals(1000, generator.generateByRegex("\\w{1000}").length());
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void shouldThrowOnInfeasibleLength() {
+    new RandomStringGenerator().generateByRegex("[a-c]{2,5}x\\d{0,3}", 10);
+  }
+
+  @Test
+  public void shouldGenerateStringByLengthDistribution() {
+    CompiledRegex compiled = new RandomStringGenerator().compile("\\d+-\\w*");
+    LengthDistribution histogram =
+        LengthDistribution.histogram(new int[] {3, 8, 16}, new double[] {1, 0, 2});
+    LengthDistribution uniform = LengthDistribution.uniform(10, 12);
+
+    Set<Integer> lengths = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      lengths.add(compiled.generate(histogram).length());
+      int length = compiled.generate(uniform).length();
+      assertTrue(length >= 10 && length <= 12);
+    }
+    assertEquals(new HashSet<>(Arrays.asList(3, 16)), lengths);
+  }
+
+  @Test
+  public void shouldStreamHugeStringToWriter() throws IOException {
+    final long[] length = new long[1];
+    final boolean[] valid = {true};
+    Writer writer = new Writer() {
+      @Override
+      public void write(char[] cbuf, int off, int len) {
+        length[0] += len;
+        for (int i = off; i < off + len; i++) {
+          valid[0] &= cbuf[i] > ' ' && cbuf[i] < 0x7f;
+        }
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    new RandomStringGenerator().generateTo("\\S{5000000}", writer);
+    assertEquals(5000000, length[0]);
+    assertTrue(valid[0]);
+
+    StringWriter stringWriter = new StringWriter();
+    new RandomStringGenerator().generateTo("ab\\d{20000}c", stringWriter);
+    assertTrue(stringWriter.toString().matches("ab\\d{20000}c"));
+  }
+
+  @Test
+  public void shouldGenerateAsciiBytes() throws IOException {
+    RandomStringGenerator generator = new RandomStringGenerator();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    generator.generateTo("x[a-c]{10000}\\w?", Channels.newChannel(out));
+    assertTrue(new String(out.toByteArray(), StandardCharsets.US_ASCII)
+        .matches("x[a-c]{10000}\\w?"));
+
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    buffer.put((byte) '>');
+    generator.generateInto("\\d{3}-\\d{4}", buffer);
+    buffer.flip();
+    assertTrue(StandardCharsets.US_ASCII.decode(buffer).toString().matches(">\\d{3}-\\d{4}"));
+  }
+
+  @Test
+  public void shouldGenerateBytesDirectly() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+
+    byte[] patternBytes = generator.generateBytesFromPattern("cCn!");
+    assertEquals(4, patternBytes.length);
+    assertTrue(new String(patternBytes, StandardCharsets.US_ASCII)
+        .matches("[a-z][A-Z][0-9][~`!@$%^&*()\\-_+={}\\[\\]|\\\\:;\"'.<>?/#,]"));
+
+    // binary letters are raw bytes rather than encoded characters
+    Set<Byte> binaryBytes = new HashSet<>();
+    for (int i = 0; i < 10000; i++) {
+      binaryBytes.add(generator.generateBytesFromPattern("b")[0]);
+    }
+    assertEquals(255, binaryBytes.size());
+    assertFalse(binaryBytes.contains((byte) 255));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(4);
+    generator.generateBytesFromPattern("nnnn", direct);
+    direct.flip();
+    assertTrue(StandardCharsets.US_ASCII.decode(direct).toString().matches("[0-9]{4}"));
+
+    byte[] regexBytes = generator.generateBytesByRegex("id-\\w{1000}x*");
+    assertTrue(new String(regexBytes, StandardCharsets.US_ASCII).matches("id-\\w{1000}x*"));
+  }
+
+  @Test(expected = BufferOverflowException.class)
+  public void shouldOccurExceptionWhenByteBufferIsInsufficient() {
+    new RandomStringGenerator().generateInto("\\d{3}-\\d{4}", ByteBuffer.allocate(7));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void shouldOccurExceptionWhenGeneratingNonAsciiBytes() {
+    new RandomStringGenerator().generateInto("\u00e9\\d", ByteBuffer.allocate(8));
+  }
+
+  @Test
+  public void shouldEnumerateAllStringsOfFiniteRegex() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    assertEquals(BigInteger.valueOf(44), generator.count("x[ab]\\d?-?"));
+
+    List<String> enumerated =
+        generator.enumerate("x[ab]\\d?-?").collect(Collectors.toList());
+    assertEquals(44, enumerated.size());
+    assertEquals(Arrays.asList("xa", "xa-", "xa0", "xa0-"), enumerated.subList(0, 4));
+    assertEquals(44, new HashSet<>(enumerated).size());
+    for (int i = 0; i < enumerated.size(); i++) {
+      assertTrue(enumerated.get(i).matches("x[ab]\\d?-?"));
+      assertEquals(enumerated.get(i), generator.nth("x[ab]\\d?-?", i));
+    }
+  }
+
+  @Test
+  public void shouldIndexIntoHugeSpace() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    BigInteger count = generator.count("\\w{0,100}");
+    BigInteger expected = BigInteger.ZERO;
+    for (int length = 0; length <= 100; length++) {
+      expected = expected.add(BigInteger.valueOf(63).pow(length));
+    }
+    assertEquals(expected, count);
+
+    assertEquals("", generator.nth("\\w{0,100}", 0));
+    assertEquals("0", generator.nth("\\w{0,100}", 1));
+    assertEquals(repeat("z", 100), generator.nth("\\w{0,100}", count.subtract(BigInteger.ONE)));
+  }
+
+  @Test
+  public void shouldGenerateFromSingleCharactersInClass() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    Set<Character> generated = new HashSet<>();
+    for (int i = 0; i < 200; i++) {
+      String randomString = generator.generateByRegex("[abx-z0]");
+      assertTrue(randomString, randomString.matches("[abx-z0]"));
+      generated.add(randomString.charAt(0));
+    }
+    assertEquals(6, generated.size());
+  }
+
+  @Test
+  public void shouldGenerateFromLargeUnicodeClass() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    String bmp = generator.generateByRegex("[\u0100-\uffff]{1000}");
+    assertEquals(1000, bmp.length());
+    for (char c : bmp.toCharArray()) {
+      assertTrue(c >= 0x100 && !Character.isSurrogate(c));
+    }
+
+    // emoticons and CJK ideographs; supplementary code points are generated as surrogate pairs
+    String emoticons = new String(Character.toChars(0x1F600)) + "-"
+        + new String(Character.toChars(0x1F64F));
+    String randomString = generator.generateByRegex("x[" + emoticons + "\u4e00-\u9fff]{500}");
+    assertTrue(randomString.matches("x[" + emoticons + "\u4e00-\u9fff]{500}"));
+    assertEquals(501, randomString.codePointCount(0, randomString.length()));
+    assertEquals(20, generator.generateByRegex("[" + emoticons + "]{10}").length());
+  }
+
+  @Test
+  public void shouldGenerateGroupsAndAlternation() throws IOException {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    String[] regexes = {"(foo|bar){2,4}", "(ab)+x", "id-(?:\\d{2}|[a-c])-(x|)", "cat|dog|\\d{3}",
+        "((a|b)c){3}", "(\\(\\))?z"};
+    for (String regex : regexes) {
+      CompiledRegex compiled = generator.compile(regex);
+      for (int i = 0; i < 100; i++) {
+        String generated = compiled.generate();
+        assertTrue(regex + " => " + generated, generated.matches(regex));
+        assertTrue(new String(compiled.generateBytes(), StandardCharsets.US_ASCII).matches(regex));
+      }
+      StringWriter writer = new StringWriter();
+      compiled.generateTo(writer);
+      assertTrue(writer.toString().matches(regex));
+    }
+
+    Set<String> generated = new HashSet<>();
+    generator.generateManyByRegex("(cat|dog)", 100).forEach(generated::add);
+    assertEquals(new HashSet<>(Arrays.asList("cat", "dog")), generated);
+  }
+
+  @Test
+  public void shouldGenerateGroupsOfExactLength() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    CompiledRegex compiled = generator.compile("(foo|ba|\\d{4,5})+-[a-c]*");
+    for (int length = 3; length < 40; length++) {
+      String generated = compiled.generate(length);
+      assertEquals(generated, length, generated.length());
+      assertTrue(generated, generated.matches("(foo|ba|\\d{4,5})+-[a-c]*"));
+    }
+
+    CompiledRegex fixed = generator.compile("(abc){2,3}");
+    assertEquals(9, fixed.generate(9).length());
+    try {
+      fixed.generate(8);
+      fail();
+    } catch (RuntimeException e) {
+      assertEquals("Cannot generate a string of length 8 from regex: (abc){2,3}", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldDrawLengthOfGroupWhichCanBeGenerated() {
+    RegexNode group = new RegexCompiler(RandomLetterPickers.getInstance(),
+        Collections.emptyMap(), new BoundedCache<>(0), 10).compile("(ab|c\\d{0,2}){2,3}").get(0);
+    RandomSource random = RandomSource.of(new Random());
+    for (int i = 0; i < 100; i++) {
+      int length = group.drawLength(random);
+      assertTrue(length >= 2 && length <= 9);
+      StringBuilder sb = new StringBuilder();
+      group.generate(sb, random, length);
+      assertEquals(length, sb.length());
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void shouldGenerateLongRepeatedGroupsOfExactLength() {
+    // planning was quadratic to the length, which took minutes for these lengths
+    RandomStringGenerator generator = new RandomStringGenerator();
+    assertEquals(repeat("ab", 500000), generator.compile("(ab)+").generate(1000000));
+    assertTrue(generator.compile("(\\w)+").generate(1000000).matches("\\w{1000000}"));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void shouldOccurExceptionWhenGroupIsNotClosed() {
+    new RandomStringGenerator().generateByRegex("(ab|cd");
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void shouldOccurExceptionWhenParenthesisIsUnmatched() {
+    new RandomStringGenerator().generateByRegex("ab)");
+  }
+
+  @Test
+  public void shouldGenerateByNamedLetterDistribution() {
+    Map<String, Double> weights = new LinkedHashMap<>();
+    weights.put("x", 3.0);
+    weights.put("y", 1.0);
+    RandomStringGenerator generator = RandomStringGenerator.builder()
+        .addLetterDistribution("xy", LetterDistribution.of(weights))
+        .addLetterDistribution("english", LetterDistribution.english())
+        .build();
+
+    String generated = generator.generateByRegex("\\p{xy}{1000}-\\p{english}+");
+    assertTrue(generated.matches("[xy]{1000}-[a-z]+"));
+    int numOfX = generated.substring(0, 1000).replace("y", "").length();
+    assertTrue(numOfX > 650 && numOfX < 850);
+
+    assertTrue(generator.generateFromPattern("n{xy}{xy}C").matches("[0-9][xy]{2}[A-Z]"));
+    assertTrue(new String(generator.generateBytesFromPattern("{xy}{english}"),
+        StandardCharsets.US_ASCII).matches("[xy][a-z]"));
+    assertEquals(BigInteger.valueOf(26), generator.count("\\p{english}"));
+
+    // \p without a name is an escaped literal as well as other unknown escapes
+    assertEquals("p", generator.generateByRegex("\\p"));
+    assertEquals("apb", generator.generateByRegex("a\\pb"));
+    assertEquals("pp", generator.generateByRegex("\\p{2}"));
+    assertEquals("p{x", generator.generateByRegex("\\p{x"));
+
+    try {
+      generator.generateByRegex("\\p{unknown}");
+      fail();
+    } catch (RuntimeException e) {
+      assertEquals("Detected unknown letter distribution: unknown", e.getMessage());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidNameOfLetterDistribution() {
+    RandomStringGenerator.builder().addLetterDistribution("x}", LetterDistribution.uniform("ab"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNegativeCacheCapacityOnBuild() {
+    // caches are created lazily, but their capacity is still checked when building
+    RandomStringGenerator.builder().setRegexCacheCapacity(-1).build();
+  }
+
+  @Test
+  public void shouldCountLengthOfSupplementaryCharactersInCodePoints() {
+    GenerationMetrics metrics = new GenerationMetrics();
+    RandomStringGenerator generator = RandomStringGenerator.builder().setListener(metrics).build();
+    String regex = "[\uD83D\uDE00-\uD83D\uDE4F]+";
+
+    String generated = generator.generateByRegex(regex, 3);
+    assertEquals(3, generated.codePointCount(0, generated.length()));
+    assertEquals(6, generated.length());
+    assertTrue(generated.matches(regex));
+    // the metrics count chars of the result
+    assertEquals(6, metrics.getGeneratedCharCount());
+
+    LengthBounds bounds = generator.compile("[\uD83D\uDE00-\uD83D\uDE4F]{2,4}").getLengthBounds();
+    assertEquals(2, bounds.getMin());
+    assertEquals(4, bounds.getMax());
+
+    // literals are counted in code points as well
+    String literalAndClass = "\uD83D\uDE00x[\uD83D\uDE00-\uD83D\uDE4F]{1,3}";
+    bounds = generator.compile(literalAndClass).getLengthBounds();
+    assertEquals(3, bounds.getMin());
+    assertEquals(5, bounds.getMax());
+    generated = generator.generateByRegex(literalAndClass, 4);
+    assertEquals(4, generated.codePointCount(0, generated.length()));
+    assertTrue(generated.matches(literalAndClass));
+
+    String group = "(\uD83D\uDE00|ab)+";
+    for (int i = 0; i < 100; i++) {
+      generated = generator.generateByRegex(group, 3);
+      assertEquals(3, generated.codePointCount(0, generated.length()));
+      assertTrue(generated.matches(group));
+    }
+  }
+
+  @Test
+  public void shouldEnumerateFiniteGroups() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    assertEquals(BigInteger.valueOf(2), generator.count("(a|b)c"));
+    assertEquals(Arrays.asList("ac", "bc"),
+        generator.enumerate("(a|b)c").collect(Collectors.toList()));
+    assertEquals(Arrays.asList("a", "bc", "aa", "abc", "bca", "bcbc"),
+        generator.enumerate("(a|bc){1,2}").collect(Collectors.toList()));
+
+    String regex = "x(y[01]|(z|)w{0,1}){0,2}-";
+    // 1 + 6 + 36 strings of the group; each repetition is y0, y1, zw, z, w or ""
+    assertEquals(BigInteger.valueOf(43), generator.count(regex));
+    List<String> enumerated = generator.enumerate(regex).collect(Collectors.toList());
+    assertEquals(43, enumerated.size());
+    for (int i = 0; i < enumerated.size(); i++) {
+      assertTrue(enumerated.get(i).matches(regex));
+      assertEquals(enumerated.get(i), generator.nth(regex, i));
+    }
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void shouldOccurExceptionWhenEnumeratingInfiniteRegex() {
+    new RandomStringGenerator().count("a\\d+");
+  }
+
+  private static String repeat(final String s, final int times) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      sb.append(s);
+    }
+    return sb.toString();
+  }
 }
@@ -0,0 +1,177 @@
+package net.moznion.random.string;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenPoolTest {
+  @Test
+  public void shouldServeTokensFromPoolAndFallBackWhenEmpty() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    // the refiller never runs, so the pool has only tokens which are filled on build
+    TokenPool pool = TokenPool.fromPattern(generator, "CCnn")
+        .setHighWatermark(16)
+        .setLowWatermark(4)
+        .setThreadFactory(runnable -> new Thread(() -> {
+        }))
+        .build();
+
+    assertEquals(16, pool.getStats().getSize());
+    Set<String> tokens = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      String token = pool.poll();
+      assertTrue(token.matches("[A-Z]{2}[0-9]{2}"));
+      tokens.add(token);
+    }
+
+    TokenPoolStats stats = pool.getStats();
+    assertEquals(0, stats.getSize());
+    assertEquals(16, stats.getHitCount());
+    assertEquals(4, stats.getMissCount());
+    assertEquals(0.8, stats.getHitRate(), 1e-9);
+    assertEquals(16, stats.getRefilledCount());
+    assertEquals(0, stats.getRefillCount());
+    pool.close();
+  }
+
+  @Test
+  public void shouldRefillInBackground() throws InterruptedException {
+    try (TokenPool pool = TokenPool.byRegex(new RandomStringGenerator(), "[0-9a-f]{32}")
+        .setHighWatermark(100)
+        .setLowWatermark(50)
+        .setBatchSize(8)
+        .build()) {
+      for (int i = 0; i < 60; i++) {
+        assertTrue(pool.poll().matches("[0-9a-f]{32}"));
+      }
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (pool.getStats().getRefillCount() < 1 && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      // the refill may finish before the last polls, so the pool isn't necessarily full
+      TokenPoolStats stats = pool.getStats();
+      assertEquals(1, stats.getRefillCount());
+      assertTrue(stats.getSize() > 50);
+      assertEquals(stats.getSize(), stats.getRefilledCount() - 60);
+      assertTrue(stats.getMaxRefillLagNanos() > 0);
+    }
+  }
+
+  @Test
+  public void shouldShareSourceWhichIsNotThreadSafeUnderLock() throws InterruptedException {
+    RandomStringGenerator generator = new RandomStringGenerator(
+        RandomSource.of(new SplittableRandom()));
+    assertTrue(generator.compile("[0-9a-f]{32}").threadSafe()
+        != generator.compile("[0-9a-f]{32}"));
+    RandomStringGenerator threadSafeGenerator = new RandomStringGenerator();
+    CompiledRegex compiled = threadSafeGenerator.compile("[0-9a-f]{32}");
+    assertTrue(compiled.threadSafe() == compiled);
+
+    try (TokenPool pool = TokenPool.byRegex(generator, "[0-9a-f]{32}")
+        .setHighWatermark(64)
+        .setBatchSize(4)
+        .build()) {
+      final int numOfThreads = 4;
+      final Set<String> tokens = ConcurrentHashMap.newKeySet();
+      final CountDownLatch done = new CountDownLatch(numOfThreads);
+      ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+      for (int t = 0; t < numOfThreads; t++) {
+        executor.execute(() -> {
+          for (int i = 0; i < 1000; i++) {
+            String token = pool.poll();
+            assertTrue(token.matches("[0-9a-f]{32}"));
+            tokens.add(token);
+          }
+          done.countDown();
+        });
+      }
+      assertTrue(done.await(60, TimeUnit.SECONDS));
+      executor.shutdown();
+      // a source which is corrupted by a race would repeat tokens
+      assertEquals(numOfThreads * 1000, tokens.size());
+    }
+  }
+
+  @Test
+  public void shouldKeepRefillingAfterGenerationFails() throws InterruptedException {
+    final AtomicInteger numOfBatches = new AtomicInteger();
+    TokenPool.Builder builder = new TokenPool.Builder("x", () -> "x", batch -> {
+      // fails at the first batch in background
+      if (numOfBatches.incrementAndGet() == 5) {
+        throw new IllegalStateException("failure of generation");
+      }
+      Arrays.fill(batch, "x");
+    });
+    try (TokenPool pool = builder.setHighWatermark(16).setBatchSize(4).build()) {
+      for (int i = 0; i < 16; i++) {
+        assertEquals("x", pool.poll());
+      }
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (pool.getStats().getRefillCount() < 1 && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      TokenPoolStats stats = pool.getStats();
+      assertEquals(1, stats.getRefillErrorCount());
+      assertEquals(1, stats.getRefillCount());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidWatermarks() {
+    TokenPool.fromPattern(new RandomStringGenerator(), "n")
+        .setHighWatermark(10)
+        .setLowWatermark(10)
+        .build();
+  }
+
+  @Test
+  public void shouldPassEachTokenOnceBetweenThreads() throws InterruptedException {
+    final TokenRing ring = new TokenRing(64);
+    final int numOfThreads = 4;
+    final int numOfTokens = 10000;
+    final Set<String> received = ConcurrentHashMap.newKeySet();
+    final CountDownLatch done = new CountDownLatch(numOfThreads * 2);
+    ExecutorService executor = Executors.newFixedThreadPool(numOfThreads * 2);
+    for (int t = 0; t < numOfThreads; t++) {
+      final int producer = t;
+      executor.execute(() -> {
+        for (int i = 0; i < numOfTokens; i++) {
+          while (!ring.offer(producer + "-" + i)) {
+            Thread.yield();
+          }
+        }
+        done.countDown();
+      });
+      executor.execute(() -> {
+        for (int i = 0; i < numOfTokens; i++) {
+          String token;
+          while ((token = ring.poll()) == null) {
+            Thread.yield();
+          }
+          assertTrue(received.add(token));
+        }
+        done.countDown();
+      });
+    }
+    assertTrue(done.await(60, TimeUnit.SECONDS));
+    executor.shutdown();
+
+    assertEquals(numOfThreads * numOfTokens, received.size());
+    assertNull(ring.poll());
+  }
+}
@@ -0,0 +1,80 @@
+package net.moznion.random.string;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class UniqueRandomStringGeneratorTest {
+  @Test
+  public void shouldGenerateAllStringsOfSmallSpaceExactlyOnce() {
+    UniqueRandomStringGenerator generator =
+        new RandomStringGenerator().uniqueByRegex("x[a-c]\\d", 10000);
+    assertEquals(30, generator.getStats().getSpaceSize());
+
+    Set<String> generated = new HashSet<>();
+    for (int i = 0; i < 30; i++) {
+      String s = generator.generate();
+      assertTrue(s.matches("x[a-c]\\d"));
+      assertTrue(s, generated.add(s));
+    }
+
+    UniquenessStats stats = generator.getStats();
+    assertEquals(30, stats.getGeneratedCount());
+    assertEquals(1.0, stats.getUsedRatio(), 0.0);
+    assertTrue(stats.getRetryCount() > 0);
+
+    try {
+      generator.generate();
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().startsWith("All 30 strings have been generated"));
+    }
+  }
+
+  @Test
+  public void shouldGiveUpWhenSpaceIsNearlyExhausted() {
+    // length is variable, so the space is unknown
+    UniqueRandomStringGenerator generator =
+        new RandomStringGenerator().uniqueByRegex("[ab]{1,2}", 10);
+    assertEquals(-1, generator.getStats().getSpaceSize());
+
+    Set<String> generated = new HashSet<>();
+    try {
+      for (int i = 0; i < 7; i++) {
+        assertTrue(generated.add(generator.generate()));
+      }
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().startsWith("Output space is nearly exhausted"));
+    }
+    assertTrue(generated.size() <= 6);
+  }
+
+  @Test
+  public void shouldTrackManyStringsCompactly() {
+    UniqueRandomStringGenerator generator =
+        new RandomStringGenerator().uniqueFromPattern("CCCCnnnn");
+    for (int i = 0; i < 100000; i++) {
+      generator.generate();
+    }
+
+    UniquenessStats stats = generator.getStats();
+    assertEquals(100000, stats.getGeneratedCount());
+    assertEquals(26L * 26 * 26 * 26 * 10 * 10 * 10 * 10, stats.getSpaceSize());
+    assertTrue(stats.toString(), stats.getTrackingBytes() <= 100000 * 32);
+  }
+
+  @Test
+  public void shouldTrackHashesOfVariableLengthStrings() {
+    UniqueRandomStringGenerator generator = new RandomStringGenerator().uniqueByRegex("\\w+");
+    Set<String> generated = new HashSet<>();
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(generated.add(generator.generate()));
+    }
+  }
+}
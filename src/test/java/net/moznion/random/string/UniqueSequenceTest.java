@@ -0,0 +1,81 @@
+package net.moznion.random.string;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class UniqueSequenceTest {
+  @Test
+  public void shouldPermuteWholeOutputSpace() {
+    UniqueSequence sequence = new RandomStringGenerator().sequenceByRegex("x[a-c]\\d{2}", 42);
+    assertEquals(300, sequence.size());
+
+    Set<String> generated = new HashSet<>();
+    for (long i = 0; i < sequence.size(); i++) {
+      String s = sequence.next();
+      assertTrue(s.matches("x[a-c]\\d{2}"));
+      assertTrue(s, generated.add(s));
+      assertEquals(i, sequence.indexOf(s));
+    }
+
+    try {
+      sequence.next();
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().startsWith("All 300 strings have been generated"));
+    }
+  }
+
+  @Test
+  public void shouldBeDeterminedByKey() {
+    RandomStringGenerator generator = new RandomStringGenerator();
+    UniqueSequence sequence = generator.sequenceFromPattern("CCCnnnn", 42);
+    UniqueSequence sameSequence = generator.sequenceFromPattern("CCCnnnn", 42);
+    UniqueSequence anotherSequence = generator.sequenceFromPattern("CCCnnnn", 43);
+    assertEquals(26L * 26 * 26 * 10 * 10 * 10 * 10, sequence.size());
+
+    int numOfDifferences = 0;
+    for (long i = 0; i < 1000; i++) {
+      long index = i * 175757;
+      String s = sequence.get(index);
+      assertTrue(s.matches("[A-Z]{3}[0-9]{4}"));
+      assertEquals(s, sameSequence.get(index));
+      assertEquals(index, sequence.indexOf(s));
+      if (!s.equals(anotherSequence.get(index))) {
+        numOfDifferences++;
+      }
+    }
+    assertTrue(numOfDifferences > 990);
+
+    // doesn't look like a counter
+    assertNotEquals("AAA0001", sequence.get(1));
+  }
+
+  @Test
+  public void shouldHandleLargeOutputSpace() {
+    UniqueSequence sequence = new RandomStringGenerator().sequenceByRegex("[A-Z0-9]{11}", 7);
+    assertEquals(131621703842267136L, sequence.size());
+    for (long index : new long[] {0, 1, 123456789, sequence.size() - 1}) {
+      String s = sequence.get(index);
+      assertTrue(s.matches("[A-Z0-9]{11}"));
+      assertEquals(index, sequence.indexOf(s));
+    }
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void shouldRejectVariableLength() {
+    new RandomStringGenerator().sequenceByRegex("\\d{1,3}", 1);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void shouldRejectIndexOutOfRange() {
+    UniqueSequence sequence = new RandomStringGenerator().sequenceByRegex("\\d{3}", 1);
+    sequence.get(1000);
+  }
+}